@@ -0,0 +1,170 @@
+/**
+ * EngineBenchmark.java
+ *
+ * Benchmarks for the hot paths of the rules engine: Board.findSets(), Board.checkForSet(), dealing a shuffled Deck,
+ * Board construction and a full headless solitaire game. Every benchmark reports throughput and, like the JMH gc
+ * profiler, the bytes allocated per operation and the allocation rate.
+ *
+ * Usage: java EngineBenchmark [name filter], with src/ and bench/ compiled onto the classpath.
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+
+public class EngineBenchmark {
+
+    private static final int[] BOARD_SIZES = {12, 15, 18, 21};
+    private static final int BOARDS_PER_SIZE = 256;    // Boards each benchmark cycles through.
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+
+    // Results are folded into sink so the JIT cannot drop the work being measured.
+    private static volatile int sink;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+
+    public static void main(String[] args) {
+
+        String filter = args.length > 0 ? args[0] : "";
+
+        System.out.printf("%-28s %16s %14s %14s%n", "Benchmark", "ops/s", "B/op", "MB/s alloc");
+
+        for (int size : BOARD_SIZES) {
+            Board[] boards = boards(size, 1L);
+            int[] next = {0};
+
+            run("findSets/" + size, filter, () -> {
+                Board board = boards[next[0]++ & (BOARDS_PER_SIZE - 1)];
+                return board.findSets().size();
+            });
+        }
+
+        int[] triples = triples(BOARDS_PER_SIZE * 3, 2L);
+        int[] nextTriple = {0};
+        Board board = new Board(0L);
+        run("checkForSet", filter, () -> {
+            int index = nextTriple[0];
+            nextTriple[0] = (index + 3) % triples.length;
+            return board.checkForSet(triples[index], triples[index + 1], triples[index + 2]).getCode();
+        });
+
+        long[] deckSeed = {3L};
+        run("deck+shuffe+deal", filter, () -> {
+            Deck deck = new Deck(deckSeed[0]++);
+            deck.shuffe();
+            int cards = 0;
+            while (!deck.isEmpty()) {
+                cards += deck.deal();
+            }
+            return cards;
+        });
+
+        long[] boardSeed = {4L};
+        run("newBoard", filter, () -> new Board(boardSeed[0]++).countSets());
+
+        long[] gameSeed = {5L};
+        run("solitaireGame", filter, () -> SolitaireSimulator.playGame(new Board(gameSeed[0]++), null));
+    }
+
+
+    /*
+     * Private helper method that measures one benchmark and prints its throughput and allocation rate.
+     */
+    private static void run(String name, String filter, IntSupplier operation) {
+
+        if (!name.contains(filter)) {
+            return;
+        }
+
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+            iterate(operation);
+        }
+
+        long operations = 0;
+        long bytes = 0;
+        long nanos = 0;
+
+        for (int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            long start = System.nanoTime();
+
+            operations += iterate(operation);
+
+            nanos += System.nanoTime() - start;
+            bytes += threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytesBefore;
+        }
+
+        double seconds = nanos / 1e9;
+        System.out.printf("%-28s %16.0f %14.1f %14.1f%n", name, operations / seconds, (double) bytes / operations,
+                bytes / seconds / (1024 * 1024));
+    }
+
+
+    /*
+     * Private helper method that runs an operation for one iteration and returns how many times it ran.
+     */
+    private static long iterate(IntSupplier operation) {
+
+        long deadline = System.nanoTime() + ITERATION_NANOS;
+        long operations = 0;
+        int result = 0;
+
+        do {
+            // Check the clock every 64 calls so reading it does not dominate the fast benchmarks.
+            for (int batch = 0; batch < 64; batch++) {
+                result += operation.getAsInt();
+            }
+            operations += 64;
+        } while (System.nanoTime() < deadline);
+
+        sink += result;
+        return operations;
+    }
+
+
+    /*
+     * Private helper method that deals boards with the given number of cards.
+     */
+    private static Board[] boards(int size, long seed) {
+
+        Board[] boards = new Board[BOARDS_PER_SIZE];
+
+        for (int index = 0; index < boards.length; index++) {
+            boards[index] = new Board(seed + index);
+            while (boards[index].getBoardSize() < size) {
+                boards[index].addCardFromDeck();
+            }
+        }
+
+        return boards;
+    }
+
+
+    /*
+     * Private helper method that draws random triples of distinct cards.
+     */
+    private static int[] triples(int cards, long seed) {
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] triples = new int[cards];
+
+        for (int index = 0; index < cards; index += 3) {
+            do {
+                triples[index] = random.nextInt(Cards.DECK_SIZE);
+                triples[index + 1] = random.nextInt(Cards.DECK_SIZE);
+                triples[index + 2] = random.nextInt(Cards.DECK_SIZE);
+            } while (triples[index] == triples[index + 1] || triples[index] == triples[index + 2]
+                    || triples[index + 1] == triples[index + 2]);
+        }
+
+        return triples;
+    }
+}
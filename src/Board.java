@@ -6,46 +6,133 @@
  * @author Nico Suarez-Canton, Samson Drews, Alex Brown
  */
 
-import javax.swing.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
 
 
 public class Board {
 
-    private ArrayList<Card> currentBoard;   // Holds the cards currently on the board.
-    private ArrayList<Card> selectedCards;  // Holds references to cards the user clicks and updates the array
+    private int[] currentBoard;     // Holds the ids of the cards currently on the board, see Cards.java
+    private int boardSize;          // Number of cards in currentBoard.
+    private long boardLow;          // Bit mask of the cards on the board with ids 0 - 63.
+    private long boardHigh;         // Bit mask of the cards on the board with ids 64 - 80 (bit = id - 64).
+    private int[] selectedCards;    // Holds the ids of the cards the user clicks (at most three).
+    private int selectedCount;      // Number of cards in selectedCards.
     private Deck currentDeck;   // Hold a reference to the current Deck in play.
 
-    private String notASet;
+    private SetVerdict lastVerdict; // Verdict of the last three cards checked.
     private boolean boardPlayable;  // True if there is at least a valid SET in currentBoard.
     private boolean gameOver;   // True when game has ended
 
-    private ArrayList<ArrayList<Card>> setsAvailable;   // Holds the SETs currently on the Board
+    private ArrayList<int[]> setsAvailable;   // Holds the SETs currently on the Board, three card ids each
     private int setsAvailableIndex; // Instance variable to track the last SET that was sent to View
 
+    private GameEventLog eventLog;  // Log the actions on this Board are written to, or null.
+    private int game;               // Number of the game of this Board in eventLog.
+    private EngineMetrics metrics;  // Metrics the play on this Board is recorded in, or null.
+
     /**
      * Constructor for Board.java objects. It creates a new Deck, shuffles it and places 12 cars in the current board.
      */
     public Board() {
+        this(new Deck());
+    }
+
+
+    /**
+     * Constructor for Board.java objects that replays a game. It creates a new Deck from the seed, shuffles it and
+     * places 12 cards in the current board, so two Boards with the same seed deal the same cards.
+     *
+     * @param seed the seed of the Deck, see Deck.getSeed().
+     */
+    public Board(long seed) {
+        this(new Deck(seed));
+    }
+
+
+    /**
+     * Constructor for Board.java objects. It shuffles the given Deck and places 12 cards in the current board.
+     *
+     * @param deck a Deck no card has been dealt from.
+     */
+    public Board(Deck deck) {
+        this(deck, null, null, 12);
+    }
+
+
+    /**
+     * Constructor for Board.java objects played by a player. It shuffles the Deck and places 12 cards in the current
+     * board. If a GameEventLog is given, it starts a game in the log with the seed of the Deck and the actions on the
+     * Board are written to it; GameEventLog.replay() rebuilds the Board from the log. If EngineMetrics are given, the
+     * play on the Board is recorded in them. Boards that are only dealt to be analyzed, replayed or loaded record
+     * nothing, so they do not show up in the metrics of the games being played.
+     *
+     * @param deck     a Deck no card has been dealt from.
+     * @param eventLog the log to write to, or null.
+     * @param metrics  the metrics to record in, usually EngineMetrics.get(), or null.
+     */
+    public Board(Deck deck, GameEventLog eventLog, EngineMetrics metrics) {
+        this(deck, eventLog, metrics, 12);
+    }
+
+
+    /*
+     * Constructor that places the given number of cards, used by GameEventLog.replay() to start from an empty board.
+     */
+    Board(Deck deck, GameEventLog eventLog, EngineMetrics metrics, int cardsToDeal) {
+
+        this(deck, new int[0]);
 
-        // Empty ArrayLists for the current board and the cards the user selects.
-        currentBoard = new ArrayList<>();
-        selectedCards = new ArrayList<>();
+        EngineEvents.Span event = EngineEvents.DEAL.begin();
 
-        currentDeck = new Deck();
         currentDeck.shuffe();
 
-        for (int i = 0; i < 12; i++) {
+        this.metrics = metrics;
+        this.eventLog = eventLog;
+        if (eventLog != null) {
+            game = eventLog.start(deck.getSeed());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < cardsToDeal; i++) {
             // Note: Deck.deal() updates the cards left in the Deck.
-            currentBoard.add(currentDeck.deal());
+            placeCard(currentDeck.deal());
+        }
+        if (cardsToDeal > 0) {
+            settled(System.nanoTime() - start);
+        }
+
+        if (event != null) {
+            event.commit(boardSize, setsAvailable.size(), currentDeck.getCardsLeft(), deck.getSeed());
         }
+    }
+
+
+    /*
+     * Constructor that resumes a game, used by BoardSnapshot: the Deck is used as it is, without shuffling, and the
+     * given cards are placed on the board in order. A finished game resumes as over.
+     */
+    Board(Deck deck, int[] cards) {
 
-        notASet = "";
+        // Empty arrays for the current board and the cards the user selects.
+        currentBoard = new int[Cards.DECK_SIZE];
+        selectedCards = new int[3];
 
-        setsAvailable = findSets();
+        // The SETs are indexed as cards are placed, so there is no need to call findSets().
+        setsAvailable = new ArrayList<>();
         setsAvailableIndex = 0;
 
+        currentDeck = deck;
 
+        for (int card : cards) {
+            placeCard(card);
+        }
+
+        lastVerdict = SetVerdict.SET;
+
+        checkGameOver();
     }
 
 
@@ -62,10 +149,52 @@ public class Board {
     /**
      * This method gets the current Board displayed to the user
      *
-     * @return the current Board
+     * @return a copy of the ids of the cards on the current Board
      */
-    public ArrayList<Card> getCurrentBoard() {
-        return currentBoard;
+    public int[] getCurrentBoard() {
+        return Arrays.copyOf(currentBoard, boardSize);
+    }
+
+
+    /**
+     * This method returns true if a card is on the current Board. It is a single bit test on the board mask.
+     *
+     * @param card the id of the card
+     * @return true if the card is on the current Board
+     */
+    public boolean contains(int card) {
+        // Shifts of a long only use the low six bits of the distance, so card is also the bit within either word.
+        return ((card < 64 ? boardLow : boardHigh) >>> card & 1L) != 0;
+    }
+
+
+    /**
+     * This method gets the bit mask of the cards on the current Board with ids 0 - 63
+     *
+     * @return the low word of the board mask
+     */
+    public long getBoardMaskLow() {
+        return boardLow;
+    }
+
+
+    /**
+     * This method gets the bit mask of the cards on the current Board with ids 64 - 80
+     *
+     * @return the high word of the board mask (bit = id - 64)
+     */
+    public long getBoardMaskHigh() {
+        return boardHigh;
+    }
+
+
+    /**
+     * This method gets the number of cards on the current Board
+     *
+     * @return the number of cards on the current Board
+     */
+    public int getBoardSize() {
+        return boardSize;
     }
 
 
@@ -84,9 +213,9 @@ public class Board {
      *
      * @return the next valid SET in setsAvailable.
      */
-    public ArrayList<Card> getNextSetAvaialble() {
+    public int[] getNextSetAvaialble() {
 
-        ArrayList<Card> nextPossibleSet = setsAvailable.get(setsAvailableIndex);
+        int[] nextPossibleSet = setsAvailable.get(setsAvailableIndex);
         setsAvailableIndex++;
 
         return nextPossibleSet;
@@ -94,63 +223,164 @@ public class Board {
 
 
     /**
-     * This method returns a reference to an ArrayList of ArrayLists of Card objects that are sets.
+     * This method returns a reference to an ArrayList of the SETs on the board, each holding three card ids. The list
+     * is kept up to date as cards are dealt and removed.
      *
-     * @return a reference to an ArrayList of ArrayLists of Card objects that are sets.
+     * @return a reference to an ArrayList of the SETs on the board.
      */
-    public ArrayList<ArrayList<Card>> getSetsAvailable() {
+    public ArrayList<int[]> getSetsAvailable() {
         return setsAvailable;
     }
 
 
     /**
-     * This method returns the reason why the last three cards selected were not a set, if they were not.
+     * This method returns true if there is at least one SET on the board. It reads the live index, so it never
+     * enumerates the board.
+     *
+     * @return true if there is a SET on the board.
+     */
+    public boolean hasAnySet() {
+        return !setsAvailable.isEmpty();
+    }
+
+
+    /**
+     * This method returns the number of SETs on the board.
      *
-     * @return a String containing why last three cards selected were not a set.
+     * @return the number of SETs on the board.
      */
-    public String getNotASet() {
-        return notASet;
+    public int countSets() {
+        return setsAvailable.size();
+    }
+
+
+    /**
+     * This method returns the SETs on the board as a lazy Stream, so callers that only need the first SET, or a SET
+     * matching some condition, stop as soon as they find it. The Stream reads the live index and must be consumed
+     * before the board changes.
+     *
+     * @return a Stream of the SETs on the board, three card ids each.
+     */
+    public Stream<int[]> sets() {
+        return Collections.unmodifiableList(setsAvailable).stream();
+    }
+
+
+    /**
+     * This method returns the verdict on the last three cards checked, which holds why they were not a set, if they
+     * were not.
+     *
+     * @return the verdict of the last call to checkForSet().
+     */
+    public SetVerdict getLastVerdict() {
+        return lastVerdict;
+    }
+
+
+    /**
+     * This method returns whether the game on this Board is over: there is no SET on the board and no more cards can
+     * be dealt, because the Deck is empty or the board already holds more than 12 cards.
+     *
+     * @return true if the game is over.
+     */
+    public boolean isGameOver() {
+        return gameOver;
     }
 
 
     /**
      * This method adds a Card to the current Board
      *
-     * @return the card added
+     * @return the id of the card added, or Cards.NO_CARD if the Deck is empty
      */
-    public Card addCardFromDeck() {
+    public int addCardFromDeck() {
 
-        Card cardFromDeck = null;
+        int cardFromDeck = Cards.NO_CARD;
 
         if (!currentDeck.isEmpty()) {
             cardFromDeck = currentDeck.deal();
-            currentBoard.add(cardFromDeck);
-            setsAvailable = findSets();
+            placeCard(cardFromDeck);
+
+            if (currentDeck.isEmpty()) {
+                if (metrics != null) {
+                    metrics.deckExhausted();
+                }
+                checkGameOver();
+            }
         }
 
         return cardFromDeck;
     }
 
 
+    /*
+     * Private helper method that puts a card at the end of the board and adds the SETs it completes to setsAvailable.
+     * Only the new card is checked against the cards already on the board.
+     */
+    private void placeCard(int card) {
+
+        long low = boardLow;
+        long high = boardHigh;
+
+        for (int index = 0; index < boardSize; index++) {
+
+            int card1 = currentBoard[index];
+            int card2 = Cards.third(card1, card);
+
+            // The SET is reached from both card1 and card2, so only keep it from the smaller id.
+            if (((card2 < 64 ? low : high) >>> card2 & 1L) != 0 && card2 > card1) {
+                setsAvailable.add(new int[]{card1, card2, card});
+            }
+        }
+
+        if (card < 64) {
+            boardLow |= 1L << card;
+        } else {
+            boardHigh |= 1L << card;
+        }
+        currentBoard[boardSize++] = card;
+
+        if (eventLog != null) {
+            eventLog.append(GameEventLog.DEAL, game, card);
+        }
+    }
+
+
     /**
-     * This method adds a user selected Card
+     * This method adds a user selected Card. Selections beyond the third card are ignored.
      *
-     * @param selectedCard the Card the user selects
+     * @param selectedCard the id of the card the user selects
      */
-    public void addCardsToSelected(Card selectedCard) {
+    public void addCardsToSelected(int selectedCard) {
+
+        if (selectedCount < selectedCards.length) {
+            selectedCards[selectedCount++] = selectedCard;
 
-        selectedCards.add(selectedCard);
+            if (eventLog != null) {
+                eventLog.append(GameEventLog.SELECT, game, selectedCard);
+            }
+        }
     }
 
 
     /**
      * This method removes a user selected Card
      *
-     * @param selectedCard the Card the user selects
+     * @param selectedCard the id of the card the user selects
      */
-    public void removeCardsFromSelected(Card selectedCard) {
+    public void removeCardsFromSelected(int selectedCard) {
+
+        for (int index = 0; index < selectedCount; index++) {
+            if (selectedCards[index] == selectedCard) {
+                selectedCount--;
+                System.arraycopy(selectedCards, index + 1, selectedCards, index, selectedCount - index);
 
-        selectedCards.remove(selectedCard);
+                if (eventLog != null) {
+                    eventLog.append(GameEventLog.DESELECT, game, selectedCard);
+                }
+                return;
+            }
+        }
     }
 
 
@@ -158,110 +388,148 @@ public class Board {
      * This method clears the Cards that have been selected by the user.
      */
     public void clearSelected() {
-        selectedCards = new ArrayList<>();
+        selectedCount = 0;
+
+        if (eventLog != null) {
+            eventLog.append(GameEventLog.CLEAR, game, Cards.NO_CARD);
+        }
 
     }
 
 
     /**
-     * This method returns True if the selected Cards are a SET.
+     * This method checks whether three cards are a SET. It never blocks and, unless a Flight Recorder recording has
+     * the claim event enabled, never allocates; showing the verdict to the user is up to the caller.
      *
-     * @return true if the selected Cards are a SET.
-     */
-    public boolean checkForSet(Card card1, Card card2, Card card3, boolean verbose) {
-
-        String reasoningString;
-
-        boolean sameCount = card1.getCount() == card2.getCount() && card1.getCount() == card3.getCount();
-        boolean sameColor = card1.getColor().equals(card2.getColor()) && card1.getColor().equals(card3.getColor());
-        boolean sameShading = card1.getShading().equals(card2.getShading()) && card1.getShading().equals(card3.getShading());
-        boolean sameShape = card1.getShape().equals(card2.getShape()) && card1.getShape().equals(card3.getShape());
-
-        boolean diffCount = card1.getCount() != card2.getCount() && card1.getCount() != card3.getCount() &&
-                card2.getCount() != card3.getCount();
-        boolean diffColor = !card1.getColor().equals(card2.getColor()) && !card1.getColor().equals(card3.getColor()) &&
-                !card2.getColor().equals(card3.getColor());
-        boolean diffShading = !card1.getShading().equals(card2.getShading()) && !card1.getShading().equals(card3.getShading()) &&
-                !card2.getShading().equals(card3.getShading());
-        boolean diffShape = !card1.getShape().equals(card2.getShape()) && !card1.getShape().equals(card3.getShape()) &&
-                !card2.getShape().equals(card3.getShape());
-
-        reasoningString = "Not the same count";
-        if (sameCount || diffCount) {
-            reasoningString = "Not the same color";
-            if (sameColor || diffColor) {
-                reasoningString = "Not the same shading";
-                if (sameShading || diffShading) {
-                    reasoningString = "Not the same shape";
-                    if (sameShape || diffShape) {
-                        return true;
-                    }
-                }
-            }
+     * @return SetVerdict.SET if the cards are a SET, otherwise the verdict that says which attribute failed.
+     */
+    public SetVerdict checkForSet(int card1, int card2, int card3) {
+
+        EngineEvents.Span event = EngineEvents.CLAIM.begin();
 
+        // A valid claim is a single table lookup; the attributes are only compared to explain a rejected one.
+        SetVerdict verdict = Cards.isSet(card1, card2, card3) ? SetVerdict.SET : Cards.verdict(card1, card2, card3);
+        if (metrics != null) {
+            metrics.claimChecked(verdict);
         }
-        if (verbose) {
-            infoBox(reasoningString, "This is not a SET.");
+
+        if (eventLog != null) {
+            eventLog.append(verdict.isSet() ? GameEventLog.CLAIM : GameEventLog.REJECT, game, card1, card2,
+                    card3, verdict.getCode(), System.currentTimeMillis());
         }
-        return false;
+
+        lastVerdict = verdict;
+
+        if (event != null) {
+            event.commit(card1, card2, card3, verdict.isSet(), verdict.isSet() ? null : verdict.name(), boardSize);
+        }
+
+        return verdict;
     }
 
+
     /**
-     * @param infoMessage
-     * @param titleBar
+     * This method gets the current user selected Cards
+     *
+     * @return a copy of the ids of the cards the user selects
      */
-    public static void infoBox(String infoMessage, String titleBar) {
-        JOptionPane.showMessageDialog(null, infoMessage, "InfoBox: " + titleBar, JOptionPane.INFORMATION_MESSAGE);
+    public int[] getSelected() {
+        return Arrays.copyOf(selectedCards, selectedCount);
     }
 
 
     /**
-     * This method gets the current user selected Cards
+     * This method gets the number of Cards the user has selected
      *
-     * @return the Cards the user selects
+     * @return the number of selected cards
      */
-    public ArrayList<Card> getSelected() {
-        return selectedCards;
+    public int getSelectedCount() {
+        return selectedCount;
     }
 
 
     /**
-     * This method removes a Card from the current Board
+     * This method removes a Card from the current Board, along with the SETs that contain it.
      *
-     * @param cardToRemove the Card to be removed
+     * @param cardToRemove the id of the card to be removed
      */
-    public void removeFromCurrentBoard(Card cardToRemove) {
+    public void removeFromCurrentBoard(int cardToRemove) {
 
-        ArrayList<Card> newBoard = new ArrayList<>();
+        if (!contains(cardToRemove)) {
+            return;
+        }
 
-        for (Card c : currentBoard) {
-            if (!c.equals(cardToRemove)) {
-                newBoard.add(c);
-            }
+        if (eventLog != null) {
+            eventLog.append(GameEventLog.REMOVE, game, cardToRemove);
         }
 
-        currentBoard = newBoard;
+        if (cardToRemove < 64) {
+            boardLow &= ~(1L << cardToRemove);
+        } else {
+            boardHigh &= ~(1L << cardToRemove);
+        }
+
+        int index = 0;
+        while (currentBoard[index] != cardToRemove) {
+            index++;
+        }
+        boardSize--;
+        System.arraycopy(currentBoard, index + 1, currentBoard, index, boardSize - index);
+
+        // Drop the SETs holding the card, keeping setsAvailableIndex on the same next SET.
+        int kept = 0;
+        for (int setIndex = 0; setIndex < setsAvailable.size(); setIndex++) {
+            int[] set = setsAvailable.get(setIndex);
+            if (set[0] == cardToRemove || set[1] == cardToRemove || set[2] == cardToRemove) {
+                if (setIndex < setsAvailableIndex) {
+                    setsAvailableIndex--;
+                }
+            } else {
+                setsAvailable.set(kept++, set);
+            }
+        }
+        setsAvailable.subList(kept, setsAvailable.size()).clear();
 
+        // While cards can still be dealt the board is only settled once the claim is refilled.
+        if (currentDeck.isEmpty()) {
+            checkGameOver();
+        }
     }
 
 
     /**
      * This method adds three Cards to the current Board.
+     *
+     * @return the ids of the cards added, or null if the board already holds more than 12 cards
      */
-    public ArrayList<Card> addThreeMoreCards() {
-        if (currentBoard.size() <= 12) {
-            ArrayList<Card> addThree = new ArrayList<>(3);
+    public int[] addThreeMoreCards() {
+        if (boardSize <= 12) {
+            if (eventLog != null) {
+                eventLog.append(GameEventLog.ADD_THREE, game, Cards.NO_CARD);
+            }
+
+            int[] addThree = new int[3];
+            int added = 0;
+            long start = System.nanoTime();
 
             for (int i = 0; i < 3; i++) {
-                Card newCard = this.addCardFromDeck();
+                int newCard = this.addCardFromDeck();
+
+                if (newCard != Cards.NO_CARD) {
+                    addThree[added++] = newCard;
 
-                if (newCard != null) {
-                    addThree.add(newCard);
+                }
+            }
 
+            if (added > 0) {
+                if (metrics != null) {
+                    metrics.addThree();
                 }
+                settled(System.nanoTime() - start);
             }
+            checkGameOver();
 
-            return addThree;
+            return Arrays.copyOf(addThree, added);
         } else {
             return null;
         }
@@ -269,75 +537,113 @@ public class Board {
 
 
     /**
-     * This method finds all the SETs available in the current board.
+     * This method refills the board after a claim: three cards are dealt if the board holds fewer than 12 cards and
+     * the Deck has at least three left. Every claim is followed by a refill, even one that deals nothing, since that
+     * is when the board the player sees next is settled.
      *
-     * @return an ArrayList of SETs (ArrayList<Card>)
+     * @return the ids of the cards dealt, possibly none.
      */
-    public ArrayList<ArrayList<Card>> findSets() {
+    public int[] refill() {
 
-        ArrayList<ArrayList<Card>> sets = new ArrayList<>();
+        if (boardSize >= 12 || currentDeck.getCardsLeft() < 3) {
+            settled(0);
+            return new int[0];
+        }
 
-        int boardSize = currentBoard.size();
+        long start = System.nanoTime();
 
-        for (int index = 0; index < boardSize; index++) {
+        int[] dealt = new int[3];
+        for (int index = 0; index < 3; index++) {
+            dealt[index] = addCardFromDeck();
+        }
 
-            Card card1 = currentBoard.get(index);
+        settled(System.nanoTime() - start);
+        return dealt;
+    }
 
-            for (int index1 = 0; index1 < boardSize; index1++) {
 
-                Card card2 = currentBoard.get(index1);
+    /*
+     * Private helper method that records a settled board in the metrics, if any: the time spent indexing the SETs of
+     * the cards just dealt, if any, and the SETs on the board.
+     */
+    private void settled(long searchNanos) {
+        if (metrics == null) {
+            return;
+        }
+        if (searchNanos > 0) {
+            metrics.setSearch(searchNanos);
+        }
+        metrics.boardSettled(setsAvailable.size());
+    }
 
-                for (int index2 = 0; index2 < boardSize; index2++) {
 
-                    Card card3 = currentBoard.get(index2);
+    /**
+     * This method finds all the SETs available in the current board from scratch. Every unordered pair of cards is
+     * visited once and the card that completes it is looked up in the board mask, so each SET is found exactly once.
+     * Board already keeps setsAvailable up to date, so this is only needed to rebuild the index.
+     *
+     * @return an ArrayList of SETs (three card ids each)
+     */
+    public ArrayList<int[]> findSets() {
 
-                    boolean differentCards = !card1.equals(card2) && !card2.equals(card3) && !card1.equals(card3);
+        EngineEvents.Span event = EngineEvents.FIND_SETS.begin();
 
-                    if (differentCards && checkForSet(card1, card2, card3, false)) {
+        long start = System.nanoTime();
+        ArrayList<int[]> sets = new ArrayList<>();
+        long low = boardLow;
+        long high = boardHigh;
 
-                        ArrayList<Card> aSet = new ArrayList<>();
-                        aSet.add(card1);
-                        aSet.add(card2);
-                        aSet.add(card3);
+        for (int index = 0; index < boardSize; index++) {
 
-                        if (notAlreadyAdded(sets, aSet)) {
-                            sets.add(aSet);
-                        }
+            int card1 = currentBoard[index];
 
-                    }
+            for (int index1 = index + 1; index1 < boardSize; index1++) {
+
+                int card2 = currentBoard[index1];
+                int card3 = Cards.third(card1, card2);
+
+                // The SET is reached from all three of its pairs, so only keep it when card3 has the largest id.
+                if (((card3 < 64 ? low : high) >>> card3 & 1L) != 0 && card3 > card1 && card3 > card2) {
+                    sets.add(new int[]{card1, card2, card3});
                 }
             }
         }
 
         setsAvailable = sets;
-        return sets;
-    }
-
+        if (metrics != null) {
+            metrics.setSearch(System.nanoTime() - start);
+        }
 
-    public String toString() {
-        String currentBoard = "";
-        int index = 1;
-        for (Card card : this.currentBoard) {
-            currentBoard += index + " " + card.toString() + "\n";
-            index++;
+        if (event != null) {
+            event.commit(boardSize, sets.size());
         }
-        return currentBoard;
+
+        return sets;
     }
 
 
     /*
-     * Private helper method that prevents findSets() from adding the same SET to setsAvaialble but with the Cards in
-     * a different order.
-     *
+     * Private helper method that marks the game over, once, when no SET is left on the board and no more cards can be
+     * dealt.
      */
-    private boolean notAlreadyAdded(ArrayList<ArrayList<Card>> sets, ArrayList<Card> possibleSet) {
-        for (ArrayList<Card> set : sets) {
-            if (set.contains(possibleSet.get(0)) && set.contains(possibleSet.get(1)) && set.contains(possibleSet.get(2))) {
-                return false;
+    private void checkGameOver() {
+        if (!gameOver && setsAvailable.isEmpty() && (currentDeck.isEmpty() || boardSize > 12)) {
+            gameOver = true;
+            if (metrics != null) {
+                metrics.gameCompleted();
             }
         }
+    }
+
 
-        return true;
+    public String toString() {
+        String currentBoard = "";
+        int index = 1;
+        for (int card : getCurrentBoard()) {
+            currentBoard += index + " " + Cards.toString(card) + "\n";
+            index++;
+        }
+        return currentBoard;
     }
 
 }
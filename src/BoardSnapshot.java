@@ -0,0 +1,157 @@
+/**
+ * BoardSnapshot.java
+ *
+ * Compact codec for saving and resuming a game. A snapshot holds the order of the cards left in the Deck, the cards on
+ * the board and the cards the player has selected, in a few dozen bytes, so idle games can be parked on disk or moved
+ * between nodes. Restoring a snapshot only rebuilds the ids of the cards; no Card panel or image is involved.
+ *
+ * Layout:
+ *   byte  FORMAT
+ *   long  seed of the Deck
+ *   byte  number of cards left in the Deck
+ *   byte  number of cards on the board
+ *   7-bit card ids, packed most significant bit first: the Deck in dealing order, then the board in order
+ *   selection mask: one bit per card on the board, bit i of byte i / 8 set if board card i is selected
+ *
+ * A fresh deal, 69 cards in the Deck and 12 on the board, encodes to 84 bytes: the 11-byte header, 71 bytes of packed
+ * ids and a 2-byte selection mask.
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+public final class BoardSnapshot {
+
+    static final byte FORMAT = 1;
+
+    private static final int HEADER_SIZE = 1 + 8 + 1 + 1;
+    private static final int BITS_PER_CARD = 7;     // 2^7 = 128 > 81 card ids.
+
+
+    private BoardSnapshot() {
+    }
+
+
+    /**
+     * This method encodes the state of a game.
+     *
+     * @param board the Board to save.
+     * @return the snapshot of the game.
+     */
+    public static byte[] encode(Board board) {
+
+        int[] deck = board.getCurrentDeck().getCardsInOrder();
+        int[] cards = board.getCurrentBoard();
+        int[] selected = board.getSelected();
+
+        int packedBytes = ((deck.length + cards.length) * BITS_PER_CARD + 7) / 8;
+        byte[] snapshot = new byte[HEADER_SIZE + packedBytes + (cards.length + 7) / 8];
+
+        snapshot[0] = FORMAT;
+        long seed = board.getCurrentDeck().getSeed();
+        for (int index = 0; index < 8; index++) {
+            snapshot[1 + index] = (byte) (seed >>> (56 - 8 * index));
+        }
+        snapshot[9] = (byte) deck.length;
+        snapshot[10] = (byte) cards.length;
+
+        int bit = HEADER_SIZE * 8;
+        for (int card : deck) {
+            bit = writeCard(snapshot, bit, card);
+        }
+        for (int card : cards) {
+            bit = writeCard(snapshot, bit, card);
+        }
+
+        int maskStart = HEADER_SIZE + packedBytes;
+        for (int index = 0; index < cards.length; index++) {
+            for (int card : selected) {
+                if (cards[index] == card) {
+                    snapshot[maskStart + index / 8] |= 1 << (index % 8);
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+
+    /**
+     * This method resumes the game held in a snapshot.
+     *
+     * @param snapshot a snapshot made by encode().
+     * @return a Board in the state of the snapshot.
+     * @throws IllegalArgumentException if the snapshot is not valid.
+     */
+    public static Board decode(byte[] snapshot) {
+
+        if (snapshot.length < HEADER_SIZE || snapshot[0] != FORMAT) {
+            throw new IllegalArgumentException("Not a board snapshot");
+        }
+
+        long seed = 0;
+        for (int index = 0; index < 8; index++) {
+            seed = seed << 8 | (snapshot[1 + index] & 0xFF);
+        }
+
+        int[] deck = new int[snapshot[9] & 0xFF];
+        int[] cards = new int[snapshot[10] & 0xFF];
+
+        int packedBytes = ((deck.length + cards.length) * BITS_PER_CARD + 7) / 8;
+        int maskStart = HEADER_SIZE + packedBytes;
+        if (snapshot.length != maskStart + (cards.length + 7) / 8) {
+            throw new IllegalArgumentException("Board snapshot has the wrong length");
+        }
+
+        boolean[] seen = new boolean[Cards.DECK_SIZE];
+        int bit = HEADER_SIZE * 8;
+        for (int index = 0; index < deck.length; index++, bit += BITS_PER_CARD) {
+            deck[index] = readCard(snapshot, bit, seen);
+        }
+        for (int index = 0; index < cards.length; index++, bit += BITS_PER_CARD) {
+            cards[index] = readCard(snapshot, bit, seen);
+        }
+
+        Board board = new Board(new Deck(seed, deck), cards);
+
+        for (int index = 0; index < cards.length; index++) {
+            if ((snapshot[maskStart + index / 8] >> (index % 8) & 1) != 0) {
+                board.addCardsToSelected(cards[index]);
+            }
+        }
+
+        return board;
+    }
+
+
+    /*
+     * Private helper method that writes a card id at the given bit offset and returns the offset after it.
+     */
+    private static int writeCard(byte[] snapshot, int bit, int card) {
+        for (int index = BITS_PER_CARD - 1; index >= 0; index--, bit++) {
+            if ((card >> index & 1) != 0) {
+                snapshot[bit / 8] |= 0x80 >>> (bit % 8);
+            }
+        }
+        return bit;
+    }
+
+
+    /*
+     * Private helper method that reads the card id at the given bit offset, rejecting ids that are out of range or
+     * already read.
+     */
+    private static int readCard(byte[] snapshot, int bit, boolean[] seen) {
+
+        int card = 0;
+        for (int index = 0; index < BITS_PER_CARD; index++, bit++) {
+            card = card << 1 | (snapshot[bit / 8] >> (7 - bit % 8) & 1);
+        }
+
+        if (card >= Cards.DECK_SIZE || seen[card]) {
+            throw new IllegalArgumentException("Board snapshot holds a bad card id " + card);
+        }
+        seen[card] = true;
+
+        return card;
+    }
+}
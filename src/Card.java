@@ -7,56 +7,58 @@
  * @author Nico Suarez-Canton, Samson Drews, Alex Brown
  */
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.border.Border;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.net.URL;
 
 
 public class Card extends JPanel {
 
-    private String shape, color, shading;
-    private int count;
+    // Both borders have the same insets, so emptying or filling a slot never changes the layout.
+    private static final Border CARD_BORDER = BorderFactory.createLineBorder(Color.black);
+    private static final Border EMPTY_BORDER = BorderFactory.createLineBorder(Color.green);
+
+    private int id;     // Value of the card in the headless model, see Cards.java, or Cards.NO_CARD for an empty slot.
     private boolean selected;
-    private BufferedImage cardImage;
 
 
     /**
-     * Create a SET card, setting its shape, color, count, and shading
-     * @param shape the type of shape the card will contain
-     * @param color the color of the shape
-     * @param count the number of shapes on a card
-     * @param shading the type of shading the shapes will have
+     * Create a SET card panel that renders the card with the given id.
+     *
+     * @param id the id of the card (0 - 80), or Cards.NO_CARD for an empty slot.
      */
-    public Card(String color, String shape, String shading, int count) {
-
-        selected = false;
+    public Card(int id) {
+        setCard(id);
+    }
 
-        this.setBorder(BorderFactory.createLineBorder(Color.black));
 
-        this.shape = shape;
-        this.color = color;
-        this.count = count;
-        this.shading = shading;
+    /**
+     * This method shows another card in this panel, in place. The selection is cleared and only this panel is
+     * repainted; the layout of the PlayingBoard is not touched.
+     *
+     * @param id the id of the card (0 - 80), or Cards.NO_CARD to show an empty slot.
+     */
+    public void setCard(int id) {
 
-        String imgPath = "images/" + color + "_" + shape + "_" + shading + ".png";
+        this.id = id;
+        selected = false;
 
-        try {
-            URL url = getClass().getResource(imgPath);
-            cardImage = ImageIO.read(url);
-        } catch (final IOException e) {
-            e.printStackTrace();
+        if (id == Cards.NO_CARD) {
+            this.setBorder(EMPTY_BORDER);
+            this.setBackground(Color.green);
+        } else {
+            this.setBorder(CARD_BORDER);
+            this.setBackground(Color.white);
         }
 
-        this.setBackground(Color.white);
+        repaint();
     }
 
 
     /**
-     * This method overrides the paintComponent method of JPanel.
-     * Author: https://github.com/SWhelan/Set/blob/master/CardPanel.java
+     * This method overrides the paintComponent method of JPanel. The face of the card is composited once by CardFaces,
+     * so painting it is a single blit centered on the panel.
+     * Layout author: https://github.com/SWhelan/Set/blob/master/CardPanel.java
      *
      * @param g the current Graphics object.
      */
@@ -64,29 +66,42 @@ public class Card extends JPanel {
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        int xCoordinate = (int) Math.floor(this.getWidth() / 2) - 50;
-        int yCoordinate = (int) Math.floor(this.getHeight() / 2);
-        if (count == 1) {
-            g.drawImage(cardImage, xCoordinate, yCoordinate - 25, null);
-        } else if (count == 2) {
-            g.drawImage(cardImage, xCoordinate, yCoordinate - 50, null);
-            g.drawImage(cardImage, xCoordinate, yCoordinate, null);
-        } else {
-            g.drawImage(cardImage, xCoordinate, yCoordinate - 75, null);
-            g.drawImage(cardImage, xCoordinate, yCoordinate - 25, null);
-            g.drawImage(cardImage, xCoordinate, yCoordinate + 25, null);
+        if (id == Cards.NO_CARD) {
+            return;
         }
 
+        int xCoordinate = this.getWidth() / 2 - CardFaces.FACE_WIDTH / 2;
+        int yCoordinate = this.getHeight() / 2 - CardFaces.FACE_HEIGHT / 2;
+        g.drawImage(CardFaces.get(id, getGraphicsConfiguration()), xCoordinate, yCoordinate, null);
+
     }
 
 
+    /**
+     * Gets the id of the card
+     *
+     * @return the id of the card (0 - 80), or Cards.NO_CARD for an empty slot
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets whether this panel is an empty slot
+     *
+     * @return true if the panel shows no card
+     */
+    public boolean isEmpty() {
+        return id == Cards.NO_CARD;
+    }
+
     /**
      * Gets the shape on the card
      *
      * @return the shape
      */
     public String getShape() {
-        return shape;
+        return Cards.SHAPES[Cards.shape(id)];
     }
 
     /**
@@ -95,7 +110,7 @@ public class Card extends JPanel {
      * @return the color of the shape
      */
     public String getColor() {
-        return color;
+        return Cards.COLORS[Cards.color(id)];
     }
 
     /**
@@ -104,7 +119,7 @@ public class Card extends JPanel {
      * @return the number of shapes
      */
     public int getCount() {
-        return count;
+        return Cards.count(id);
     }
 
     /**
@@ -113,7 +128,7 @@ public class Card extends JPanel {
      * @return the shading of the shape
      */
     public String getShading() {
-        return shading;
+        return Cards.SHADINGS[Cards.shading(id)];
     }
 
 
@@ -133,7 +148,7 @@ public class Card extends JPanel {
      * @return a String representaion of a Card object.
      */
     public String toString() {
-        return color + " - " + shape + " - " + shading + " - " + count + " - " + selected;
+        return Cards.toString(id) + " - " + selected;
 
     }
 
@@ -148,10 +163,7 @@ public class Card extends JPanel {
 
 
     public boolean equals(Card anotherCard) {
-        return this.getCount() == anotherCard.getCount()
-                && this.getShape().equals(anotherCard.getShape())
-                && this.getShading().equals(anotherCard.getShading())
-                && this.getColor().equals(anotherCard.getColor());
+        return this.id == anotherCard.id;
     }
 
 }
@@ -0,0 +1,82 @@
+/**
+ * CardFaces.java
+ *
+ * Cache of the 81 card faces, each one composited once from its sprite into an image compatible with the display, so
+ * painting a Card is a single blit. A face is FACE_WIDTH x FACE_HEIGHT with the one, two or three sprites of the card
+ * stacked in the middle, laid out as SWhelan's CardPanel did. Faces are kept per GraphicsConfiguration, so a worker
+ * prewarming faces with one configuration and a Card painting with another, or a window moving between screens, never
+ * throws the faces of the other configuration away.
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+
+public final class CardFaces {
+
+    static final int FACE_WIDTH = 100;      // Width of a sprite.
+    static final int FACE_HEIGHT = 150;     // Height of three stacked sprites.
+    private static final int SPRITE_HEIGHT = 50;
+
+    // The faces compatible with every configuration they were asked for with; null when headless.
+    private static final Map<GraphicsConfiguration, Image[]> faces = new HashMap<>();
+
+
+    private CardFaces() {
+    }
+
+
+    /**
+     * This method returns the face of a card, compositing it the first time it is needed with a GraphicsConfiguration,
+     * e.g. again after the window moves to another screen.
+     *
+     * @param card          the id of the card
+     * @param configuration the GraphicsConfiguration of the component painting the face, or null when headless.
+     * @return the face of the card.
+     */
+    public static synchronized Image get(int card, GraphicsConfiguration configuration) {
+
+        Image[] configurationFaces = faces.computeIfAbsent(configuration, key -> new Image[Cards.DECK_SIZE]);
+
+        if (configurationFaces[card] == null) {
+            EngineEvents.Span event = EngineEvents.CARD_FACE.begin();
+
+            configurationFaces[card] = composite(card, configuration);
+
+            if (event != null) {
+                event.commit(card, configuration != null);
+            }
+        }
+
+        return configurationFaces[card];
+    }
+
+
+    /*
+     * Private helper method that draws the sprites of a card onto a new face.
+     */
+    private static Image composite(int card, GraphicsConfiguration configuration) {
+
+        Image face = configuration != null
+                ? configuration.createCompatibleImage(FACE_WIDTH, FACE_HEIGHT, Transparency.TRANSLUCENT)
+                : new BufferedImage(FACE_WIDTH, FACE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+
+        BufferedImage sprite = SpriteCache.get(card);
+        int count = Cards.count(card);
+
+        // The stack of sprites is centered on the face: its top is one half sprite lower for every missing sprite.
+        int top = (3 - count) * SPRITE_HEIGHT / 2;
+
+        Graphics g = face.getGraphics();
+        for (int index = 0; index < count; index++) {
+            g.drawImage(sprite, 0, top + index * SPRITE_HEIGHT, null);
+        }
+        g.dispose();
+
+        return face;
+    }
+}
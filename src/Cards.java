@@ -0,0 +1,153 @@
+/**
+ * Cards.java
+ *
+ * Headless value model for SET cards. Each of the 81 cards is an int from 0 to 80 holding one base-3 digit per
+ * attribute: color, shape, shading and count (from most to least significant). The Swing Card class only renders one
+ * of these ids, so the rules engine never needs to touch AWT.
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+public final class Cards {
+
+    public static final int DECK_SIZE = 81;    // Number of distinct cards in a SET deck.
+    public static final int NO_CARD = -1;      // Returned when there is no card to hand out.
+
+    static final String[] COLORS = {"green", "purple", "red"};
+    static final String[] SHAPES = {"diamond", "oval", "squiggly"};
+    static final String[] SHADINGS = {"empty", "filled", "lined"};
+
+    // For every pair of cards, the only card that completes a SET with them (indexed by card1 * 81 + card2).
+    private static final byte[] THIRD = new byte[DECK_SIZE * DECK_SIZE];
+
+    static {
+        for (int card1 = 0; card1 < DECK_SIZE; card1++) {
+            for (int card2 = 0; card2 < DECK_SIZE; card2++) {
+                int third = 0;
+                for (int digit = 27; digit > 0; digit /= 3) {
+                    // Each attribute of the three cards must add up to a multiple of three.
+                    int sum = card1 / digit % 3 + card2 / digit % 3;
+                    third += (3 - sum % 3) % 3 * digit;
+                }
+                THIRD[card1 * DECK_SIZE + card2] = (byte) third;
+            }
+        }
+    }
+
+
+    private Cards() {
+    }
+
+
+    /**
+     * This method builds the id of a card from its four attribute digits.
+     *
+     * @param color   the color digit (0 - 2)
+     * @param shape   the shape digit (0 - 2)
+     * @param shading the shading digit (0 - 2)
+     * @param count   the number of shapes on the card (1 - 3)
+     * @return the id of the card (0 - 80)
+     */
+    public static int id(int color, int shape, int shading, int count) {
+        return ((color * 3 + shape) * 3 + shading) * 3 + (count - 1);
+    }
+
+
+    /**
+     * Gets the color digit of a card.
+     *
+     * @param card the id of the card
+     * @return the color digit (0 - 2)
+     */
+    public static int color(int card) {
+        return card / 27;
+    }
+
+    /**
+     * Gets the shape digit of a card.
+     *
+     * @param card the id of the card
+     * @return the shape digit (0 - 2)
+     */
+    public static int shape(int card) {
+        return card / 9 % 3;
+    }
+
+    /**
+     * Gets the shading digit of a card.
+     *
+     * @param card the id of the card
+     * @return the shading digit (0 - 2)
+     */
+    public static int shading(int card) {
+        return card / 3 % 3;
+    }
+
+    /**
+     * Gets the number of shapes on a card.
+     *
+     * @param card the id of the card
+     * @return the number of shapes (1 - 3)
+     */
+    public static int count(int card) {
+        return card % 3 + 1;
+    }
+
+
+    /**
+     * This method returns True if the three cards are a SET, that is, if every attribute is either the same on all
+     * three cards or different on all three cards. Since two cards fix the third, this is a single table lookup.
+     *
+     * @return true if the three cards are a SET.
+     */
+    public static boolean isSet(int card1, int card2, int card3) {
+        return card1 != card2 && third(card1, card2) == card3;
+    }
+
+
+    /**
+     * This method returns the card that completes a SET with the two given cards. Any two different cards fix exactly
+     * one third card.
+     *
+     * @param card1 the id of the first card
+     * @param card2 the id of the second card
+     * @return the id of the card that makes a SET with card1 and card2.
+     */
+    public static int third(int card1, int card2) {
+        return THIRD[card1 * DECK_SIZE + card2];
+    }
+
+
+    /**
+     * This method returns the verdict on three cards: SET, or the first attribute that breaks the SET rules, checked
+     * in the order count, color, shading and shape.
+     *
+     * @return the verdict on the three cards.
+     */
+    public static SetVerdict verdict(int card1, int card2, int card3) {
+        if ((card1 % 3 + card2 % 3 + card3 % 3) % 3 != 0) {
+            return SetVerdict.COUNT;
+        }
+        if ((color(card1) + color(card2) + color(card3)) % 3 != 0) {
+            return SetVerdict.COLOR;
+        }
+        if ((shading(card1) + shading(card2) + shading(card3)) % 3 != 0) {
+            return SetVerdict.SHADING;
+        }
+        if ((shape(card1) + shape(card2) + shape(card3)) % 3 != 0) {
+            return SetVerdict.SHAPE;
+        }
+        return card1 != card2 ? SetVerdict.SET : SetVerdict.SAME_CARD;
+    }
+
+
+    /**
+     * This method returns a String representation of a card.
+     *
+     * @param card the id of the card
+     * @return a String representation of the card.
+     */
+    public static String toString(int card) {
+        return COLORS[color(card)] + " - " + SHAPES[shape(card)] + " - " + SHADINGS[shading(card)] + " - " + count(card);
+    }
+}
@@ -0,0 +1,393 @@
+/**
+ * ClaimArbiter.java
+ *
+ * Race mode: several players claim SETs on the same Board at once and the first valid claim on a card wins. Every card
+ * has an owner slot in an AtomicIntegerArray; a claim takes the slots of its three cards with compareAndSet, from the
+ * smallest id up, and gives back the ones it took if another player got a card first. Two claims that share cards
+ * always meet on the smallest shared card first, so one of them wins; no player ever waits on a lock.
+ *
+ * A winning claim is queued and applied to the Board by whichever thread is combining at the time: the one that sets
+ * the combining flag drains the queue, removes and deals the cards, frees the owner slots of the new cards and then
+ * publishes an immutable State with a new version. The Board is only ever used by the combining thread. Add Three is
+ * queued the same way with the version its player saw, and is dropped if the board changed since, so players stuck on
+ * the same board only add three cards once.
+ *
+ * Every player keeps the cards it is selecting on its own side; only complete claims reach the arbiter.
+ *
+ * Usage: java ClaimArbiter [players] [games]    (bot players race on shared boards and report claim latency)
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public final class ClaimArbiter {
+
+    // Owner slots. Players are numbered from 1.
+    public static final int NOT_ON_BOARD = -1;  // The card is in the Deck.
+    public static final int FREE = 0;           // The card is on the board and nobody claimed it.
+
+    // Results of claim().
+    public static final int WON = 0;
+    public static final int LOST = 1;           // Another player claimed one of the cards first, or it is not dealt.
+    public static final int NOT_A_SET = 2;
+
+    private static final int FULL_BOARD = 12;
+    private static final int ADD_THREE = Cards.NO_CARD;
+
+    private final Board board;
+    private final AtomicIntegerArray owners = new AtomicIntegerArray(Cards.DECK_SIZE);
+    private final AtomicIntegerArray scores;
+    private final ConcurrentLinkedQueue<Request> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean combining = new AtomicBoolean();
+    private final AtomicLong claimsLost = new AtomicLong();
+
+    private long version;           // Changes applied to the Board so far; only touched by the combining thread.
+    private volatile State state;   // Last published state of the Board.
+
+
+    /**
+     * Constructor for a ClaimArbiter. From now on the Board must only be changed through the arbiter.
+     *
+     * @param board   the Board the players race on.
+     * @param players the number of players, numbered from 1.
+     */
+    public ClaimArbiter(Board board, int players) {
+
+        this.board = board;
+        scores = new AtomicIntegerArray(players + 1);
+
+        for (int card = 0; card < Cards.DECK_SIZE; card++) {
+            owners.set(card, board.contains(card) ? FREE : NOT_ON_BOARD);
+        }
+
+        publish();
+    }
+
+
+    /**
+     * This method claims three cards for a player. It never blocks: the cards are taken with compareAndSet and the
+     * change to the Board is applied by the combining thread, which may be this one.
+     *
+     * @param player the player claiming, from 1.
+     * @return WON if the cards are a SET and the player got all three first, LOST if another player got one of them
+     * first, NOT_A_SET otherwise (Cards.verdict() tells why).
+     */
+    public int claim(int player, int card1, int card2, int card3) {
+
+        if (!Cards.isSet(card1, card2, card3)) {
+            return NOT_A_SET;
+        }
+
+        int low = Math.min(card1, Math.min(card2, card3));
+        int high = Math.max(card1, Math.max(card2, card3));
+        int middle = card1 + card2 + card3 - low - high;
+
+        if (!owners.compareAndSet(low, FREE, player)) {
+            return lost();
+        }
+        if (!owners.compareAndSet(middle, FREE, player)) {
+            owners.set(low, FREE);
+            return lost();
+        }
+        if (!owners.compareAndSet(high, FREE, player)) {
+            owners.set(middle, FREE);
+            owners.set(low, FREE);
+            return lost();
+        }
+
+        scores.incrementAndGet(player);
+        pending.add(new Request(low, middle, high, 0));
+        combine();
+
+        return WON;
+    }
+
+
+    /**
+     * This method asks for three more cards. They are only dealt if the board has not changed since the given state,
+     * it has at most 12 cards and the Deck is not empty.
+     *
+     * @param seen the state the player saw when it found no SET.
+     */
+    public void requestAddThree(State seen) {
+        pending.add(new Request(ADD_THREE, ADD_THREE, ADD_THREE, seen.version));
+        combine();
+    }
+
+
+    /**
+     * Gets the last published state of the board
+     *
+     * @return the current State
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the owner of a card
+     *
+     * @param card the id of the card
+     * @return the player who claimed it, FREE or NOT_ON_BOARD
+     */
+    public int getOwner(int card) {
+        return owners.get(card);
+    }
+
+    /**
+     * Gets the number of SETs a player won
+     *
+     * @param player the player, from 1
+     * @return the SETs the player claimed first
+     */
+    public int getScore(int player) {
+        return scores.get(player);
+    }
+
+    /**
+     * Gets the number of valid SETs that lost the race to another claim
+     *
+     * @return the claims lost so far
+     */
+    public long getClaimsLost() {
+        return claimsLost.get();
+    }
+
+
+    /*
+     * Private helper method that counts a lost claim.
+     */
+    private int lost() {
+        claimsLost.incrementAndGet();
+        return LOST;
+    }
+
+
+    /*
+     * Private helper method that applies the queued requests if no other thread is doing it. The queue is checked
+     * again after the combining flag is released, so a request queued meanwhile is never left behind.
+     */
+    private void combine() {
+
+        while (!pending.isEmpty() && combining.compareAndSet(false, true)) {
+            try {
+                Request request;
+                while ((request = pending.poll()) != null) {
+                    apply(request);
+                }
+                publish();
+            } finally {
+                combining.set(false);
+            }
+        }
+    }
+
+
+    /*
+     * Private helper method for the combining thread that applies one request to the Board, with the rules of
+     * PlayingBoard.restoreBoard() and Board.addThreeMoreCards().
+     */
+    private void apply(Request request) {
+
+        Deck deck = board.getCurrentDeck();
+
+        if (request.card1 == ADD_THREE) {
+            if (request.version != version || board.getBoardSize() > FULL_BOARD || deck.isEmpty()) {
+                return;
+            }
+            for (int card : board.addThreeMoreCards()) {
+                owners.set(card, FREE);
+            }
+            version++;
+            return;
+        }
+
+        board.removeFromCurrentBoard(request.card1);
+        board.removeFromCurrentBoard(request.card2);
+        board.removeFromCurrentBoard(request.card3);
+
+        for (int card : board.refill()) {
+            owners.set(card, FREE);
+        }
+        version++;
+    }
+
+
+    /*
+     * Private helper method for the combining thread that publishes the state of the Board.
+     */
+    private void publish() {
+        boolean stuck = !board.hasAnySet()
+                && (board.getBoardSize() > FULL_BOARD || board.getCurrentDeck().isEmpty());
+        state = new State(version, board.getCurrentBoard(), board.getCurrentDeck().getCardsLeft(), stuck);
+    }
+
+
+    /**
+     * Immutable view of the board, published after every change.
+     */
+    public static final class State {
+
+        private final long version;
+        private final int[] cards;
+        private final int cardsLeft;
+        private final boolean gameOver;
+
+        private State(long version, int[] cards, int cardsLeft, boolean gameOver) {
+            this.version = version;
+            this.cards = cards;
+            this.cardsLeft = cardsLeft;
+            this.gameOver = gameOver;
+        }
+
+        /**
+         * Gets the number of changes applied to the board before this state
+         *
+         * @return the version of the state
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Gets the cards on the board
+         *
+         * @return a copy of the card ids on the board
+         */
+        public int[] getCards() {
+            return cards.clone();
+        }
+
+        /**
+         * Gets the number of cards left in the deck
+         *
+         * @return the cards left in the deck
+         */
+        public int getCardsLeft() {
+            return cardsLeft;
+        }
+
+        /**
+         * Gets whether the game is over: no SET on the board and no more cards can be dealt
+         *
+         * @return true if the game is over
+         */
+        public boolean isGameOver() {
+            return gameOver;
+        }
+    }
+
+
+    /*
+     * A claim that won, or an Add Three asked for at a version of the board.
+     */
+    private static final class Request {
+
+        final int card1;
+        final int card2;
+        final int card3;
+        final long version;
+
+        Request(int card1, int card2, int card3, long version) {
+            this.card1 = card1;
+            this.card2 = card2;
+            this.card3 = card3;
+            this.version = version;
+        }
+    }
+
+
+    /*
+     * Private helper method for the bots in main(): returns a SET among the cards that nobody claimed yet, starting
+     * the search at a random card so the bots do not all go for the same SET, or null.
+     */
+    private int[] findSet(int[] cards, SplittableRandom random) {
+
+        int start = cards.length > 0 ? random.nextInt(cards.length) : 0;
+
+        for (int offset1 = 0; offset1 < cards.length; offset1++) {
+            int card1 = cards[(start + offset1) % cards.length];
+            if (owners.get(card1) != FREE) {
+                continue;
+            }
+            for (int offset2 = offset1 + 1; offset2 < cards.length; offset2++) {
+                int card2 = cards[(start + offset2) % cards.length];
+                int third = Cards.third(card1, card2);
+                if (owners.get(card2) != FREE || owners.get(third) != FREE) {
+                    continue;
+                }
+                for (int card : cards) {
+                    if (card == third) {
+                        return new int[]{card1, card2, third};
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+
+    public static void main(String[] args) throws InterruptedException {
+
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        SplittableRandom seeds = new SplittableRandom(1);
+        long claims = 0;
+        long lost = 0;
+        AtomicLong claimNanos = new AtomicLong();
+        AtomicLong attempts = new AtomicLong();
+
+        for (int game = 0; game < games; game++) {
+
+            ClaimArbiter arbiter = new ClaimArbiter(new Board(seeds.nextLong()), players);
+            ArrayList<Thread> bots = new ArrayList<>();
+
+            for (int player = 1; player <= players; player++) {
+                int id = player;
+                SplittableRandom random = seeds.split();
+                Thread bot = new Thread(() -> {
+                    State seen = arbiter.getState();
+                    while (!seen.isGameOver()) {
+                        int[] set = arbiter.findSet(seen.cards, random);
+                        if (set == null) {
+                            arbiter.requestAddThree(seen);
+                        } else {
+                            long start = System.nanoTime();
+                            arbiter.claim(id, set[0], set[1], set[2]);
+                            claimNanos.addAndGet(System.nanoTime() - start);
+                            attempts.incrementAndGet();
+                        }
+                        State next = arbiter.getState();
+                        while (next.version == seen.version && set == null && !next.isGameOver()) {
+                            Thread.yield();     // Another thread is applying the Add Three.
+                            next = arbiter.getState();
+                        }
+                        seen = next;
+                    }
+                });
+                bots.add(bot);
+                bot.start();
+            }
+
+            for (Thread bot : bots) {
+                bot.join();
+            }
+
+            for (int player = 1; player <= players; player++) {
+                claims += arbiter.getScore(player);
+            }
+            lost += arbiter.getClaimsLost();
+        }
+
+        System.out.printf("%d players, %d games: %d SETs won, %d claims lost the race, mean claim %.1f us%n",
+                players, games, claims, lost, claimNanos.get() / 1e3 / Math.max(1, attempts.get()));
+    }
+}
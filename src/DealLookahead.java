@@ -0,0 +1,192 @@
+/**
+ * DealLookahead.java
+ *
+ * Exact odds of the next Add Three. Given the cards on a Board and the cards left in its Deck, in an order the player
+ * does not know, it computes the probability that the three cards dealt next make at least one new SET, and the
+ * expected number of new SETs they make. Nothing is simulated: a new SET takes one, two or three of the new cards, and
+ * each kind is found by completing pairs with Cards.third():
+ *
+ *   one new card x     with two board cards b1, b2 if third(b1, b2) == x
+ *   two new cards x, y with one board card      if third(x, y) is on the board
+ *   three new cards    if they are a SET themselves
+ *
+ * The expected number of SETs follows from linearity over those counts. The probability counts the dead deals, the
+ * triples of the deck that make none of them, with the first card of the triple spread across all cores.
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.util.stream.IntStream;
+
+
+public final class DealLookahead {
+
+    private final int cardsLeft;        // Cards in the Deck the three cards are dealt from.
+    private final long deals;           // Number of different three-card deals, C(cardsLeft, 3).
+    private final long dealsWithSet;    // Deals that make at least one new SET.
+    private final double expectedSets;  // Mean number of new SETs over all the deals.
+
+
+    private DealLookahead(int cardsLeft, long deals, long dealsWithSet, double expectedSets) {
+        this.cardsLeft = cardsLeft;
+        this.deals = deals;
+        this.dealsWithSet = dealsWithSet;
+        this.expectedSets = expectedSets;
+    }
+
+
+    /**
+     * This method computes the odds of dealing three more cards on a Board, treating every order of the cards left in
+     * its Deck as equally likely. The Board must not change until it returns.
+     *
+     * @param board the Board to look ahead from.
+     * @return the odds of the next three cards.
+     */
+    public static DealLookahead of(Board board) {
+
+        int[] cards = board.getCurrentBoard();
+        int[] deck = board.getCurrentDeck().getCardsInOrder();
+        int left = deck.length;
+
+        if (left < 3) {
+            return new DealLookahead(left, 0, 0, 0);
+        }
+
+        // For every card, the number of pairs on the board it would complete.
+        int[] completes = new int[Cards.DECK_SIZE];
+        for (int index1 = 0; index1 < cards.length; index1++) {
+            for (int index2 = index1 + 1; index2 < cards.length; index2++) {
+                int third = Cards.third(cards[index1], cards[index2]);
+                if (!board.contains(third)) {
+                    completes[third]++;
+                }
+            }
+        }
+
+        long oneNew = 0;        // SETs of one deck card and two board cards.
+        long twoNew = 0;        // Pairs of deck cards completed by a board card.
+        long threeNew = 0;      // SETs among the deck cards.
+        boolean[] inDeck = new boolean[Cards.DECK_SIZE];
+        for (int card : deck) {
+            oneNew += completes[card];
+            inDeck[card] = true;
+        }
+        for (int index1 = 0; index1 < left; index1++) {
+            for (int index2 = index1 + 1; index2 < left; index2++) {
+                int third = Cards.third(deck[index1], deck[index2]);
+                if (board.contains(third)) {
+                    twoNew++;
+                } else if (inDeck[third]) {
+                    threeNew++;
+                }
+            }
+        }
+        threeNew /= 3;      // Every SET of the deck was found from each of its three pairs.
+
+        long pairs = (long) left * (left - 1) / 2;
+        long deals = pairs * (left - 2) / 3;
+
+        // A deal holds a given card with probability 3 / left, a given pair with probability 3 / pairs and a given
+        // triple with probability 1 / deals.
+        double expectedSets = 3.0 * oneNew / left + 3.0 * twoNew / pairs + (double) threeNew / deals;
+
+        long deadDeals = IntStream.range(0, left).parallel()
+                .mapToLong(first -> countDeadDeals(board, deck, completes, first))
+                .sum();
+
+        return new DealLookahead(left, deals, deals - deadDeals, expectedSets);
+    }
+
+
+    /*
+     * Private helper method that counts the deals whose first card, in deck order, is deck[first] and that make no
+     * new SET.
+     */
+    private static long countDeadDeals(Board board, int[] deck, int[] completes, int first) {
+
+        int card1 = deck[first];
+        if (completes[card1] > 0) {
+            return 0;
+        }
+
+        long dead = 0;
+
+        for (int second = first + 1; second < deck.length; second++) {
+
+            int card2 = deck[second];
+            int third12 = Cards.third(card1, card2);
+            if (completes[card2] > 0 || board.contains(third12)) {
+                continue;
+            }
+
+            for (int third = second + 1; third < deck.length; third++) {
+                int card3 = deck[third];
+                if (completes[card3] == 0 && card3 != third12
+                        && !board.contains(Cards.third(card1, card3))
+                        && !board.contains(Cards.third(card2, card3))) {
+                    dead++;
+                }
+            }
+        }
+
+        return dead;
+    }
+
+
+    /**
+     * Gets the probability that the next three cards make at least one new SET
+     *
+     * @return the probability, 0 if fewer than three cards are left
+     */
+    public double getProbability() {
+        return deals == 0 ? 0 : (double) dealsWithSet / deals;
+    }
+
+    /**
+     * Gets the expected number of new SETs made by the next three cards
+     *
+     * @return the mean number of new SETs over all the possible deals
+     */
+    public double getExpectedSets() {
+        return expectedSets;
+    }
+
+    /**
+     * Gets the number of different deals of three cards
+     *
+     * @return C(cards left, 3)
+     */
+    public long getDeals() {
+        return deals;
+    }
+
+    /**
+     * Gets the number of deals that make at least one new SET
+     *
+     * @return the number of deals with a SET
+     */
+    public long getDealsWithSet() {
+        return dealsWithSet;
+    }
+
+    /**
+     * Gets the number of cards left in the Deck
+     *
+     * @return the number of cards the deal is drawn from
+     */
+    public int getCardsLeft() {
+        return cardsLeft;
+    }
+
+
+    /**
+     * This method returns a String representation of the odds.
+     *
+     * @return a String with the probability and the expected number of new SETs.
+     */
+    @Override
+    public String toString() {
+        return String.format("%.1f%% chance of a SET in the next three cards (%d of %d deals), %.2f new SETs expected",
+                100 * getProbability(), dealsWithSet, deals, expectedSets);
+    }
+}
@@ -1,80 +1,148 @@
 /**
  * Deck.java
  *
+ * The cards are kept in a fixed array and dealt from a cursor, so dealing never shifts or allocates. Shuffles are
+ * driven by a SplittableRandom created from the seed of the Deck, so the order of any Deck can be rebuilt from its seed.
+ *
  * @authors Nico Suarez-Canton, Samson Drews, Alex Brown
  */
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 
 public class Deck {
 
-    private static String[] cardColors = {"green", "purple", "red"};
-    private static String[] cardShapes = {"diamond", "oval", "squiggly"};
-    private static String[] cardShades = {"empty", "filled", "lined"};
-    int[] cardCounts = {1, 2, 3};
+    private int[] cards;    // Holds the ids of all the cards, see Cards.java. Cards before top have been dealt.
+    private int top;        // Index of the next card to deal.
 
-    private ArrayList<Card> cards;
-    private int cardsLeft;
+    private long seed;                  // Seed the shuffles of this Deck are drawn from.
+    private SplittableRandom random;    // Random source for shuffe().
 
 
     /**
-     * Constructor for a Deck object. This method adds Card objects to the Deck, and sets the numbers of cards left to
-     * full deck.
+     * Constructor for a Deck object with a random seed.
      */
     public Deck() {
-        cards = new ArrayList<>();
-        for (String color : cardColors) {
-            for (String shape : cardShapes) {
-                for (String shade : cardShades) {
-                    for (int count : cardCounts) {
-                        Card newCard = new Card(color, shape, shade, count);
-                        cards.add(newCard);
-                        cardsLeft += 1;
-                    }
-                }
+        this(new SplittableRandom().nextLong());
+    }
+
+
+    /**
+     * Constructor for a Deck object whose seed is drawn from the given random source. Simulations can hand each Deck
+     * a SplittableRandom.split() of their own stream.
+     *
+     * @param random the random source to draw the seed from.
+     */
+    public Deck(SplittableRandom random) {
+        this(random.nextLong());
+    }
+
+
+    /**
+     * Constructor for a Deck object. This method adds the ids of all 81 cards to the Deck, in order, and sets the
+     * numbers of cards left to full deck. Two Decks with the same seed shuffle into the same order.
+     *
+     * @param seed the seed of the random source used by shuffe().
+     */
+    public Deck(long seed) {
+        cards = new int[Cards.DECK_SIZE];
+        for (int card = 0; card < Cards.DECK_SIZE; card++) {
+            cards[card] = card;
+        }
+
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+
+    }
+
+
+    /*
+     * Constructor that resumes a Deck, used by BoardSnapshot: the given cards are left to deal, in order, and every
+     * other card counts as dealt.
+     */
+    Deck(long seed, int[] cardsLeft) {
+
+        this(seed);
+
+        boolean[] left = new boolean[Cards.DECK_SIZE];
+        for (int card : cardsLeft) {
+            left[card] = true;
+        }
+
+        for (int card = 0; card < Cards.DECK_SIZE; card++) {
+            if (!left[card]) {
+                cards[top++] = card;
             }
         }
+        System.arraycopy(cardsLeft, 0, cards, top, cardsLeft.length);
 
     }
 
 
     /**
-     * This method returns the card at the beginning of the deck. It also removes such card from the current deck, and it
-     * updates the instance variable cardsLeft.
+     * This method returns the card at the beginning of the deck and moves the top of the deck past it.
      *
-     * @return the Card object at the top of the Deck
+     * @return the id of the card at the top of the Deck
      */
-    public Card deal() {
-        cardsLeft -= 1;
-        Card dealtCard = cards.get(0);
-        remove(dealtCard);
-        return dealtCard;
+    public int deal() {
+        return cards[top++];
 
     }
 
 
     /**
-     * This method randomizes the order of the Cards in the Deck.
+     * This method randomizes the order of the cards left in the Deck with a Fisher-Yates shuffle.
      */
     public void shuffe() {
-        Collections.shuffle(cards);
+        for (int index = cards.length - 1; index > top; index--) {
+            int swap = top + random.nextInt(index - top + 1);
+            int card = cards[index];
+            cards[index] = cards[swap];
+            cards[swap] = card;
+        }
     }
 
 
     /**
      * This method removes a given card from the current Deck.
      *
-     * @param cardToRemove the Card to remove from the Deck.
+     * @param cardToRemove the id of the card to remove from the Deck.
+     */
+    public void remove(int cardToRemove) {
+        for (int index = top; index < cards.length; index++) {
+            if (cards[index] == cardToRemove) {
+                // Shift the cards above it down by one so the order of the rest of the Deck is kept.
+                System.arraycopy(cards, top, cards, top + 1, index - top);
+                cards[top++] = cardToRemove;
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * This method returns the cards left in the Deck, in the order they will be dealt.
+     *
+     * @return a copy of the ids of the cards left in the Deck.
+     */
+    public int[] getCardsInOrder() {
+        return Arrays.copyOfRange(cards, top, cards.length);
+    }
+
+
+    /**
+     * This method returns the seed of the Deck. new Deck(getSeed()) shuffles into the same order as this Deck.
+     *
+     * @return the seed of the Deck.
      */
-    public void remove(Card cardToRemove) {
-        cards.remove(cardToRemove);
+    public long getSeed() {
+        return seed;
     }
 
 
     /**
-     * This method returns a String representation of the Card objects in the current Deck.
+     * This method returns a String representation of the cards in the current Deck.
      *
      * @return A String representation of a Deck object.
      */
@@ -84,12 +152,12 @@ public class Deck {
         int index = 1;
         String cardsInDeck = "";
 
-        for (Card card : cards) {
+        for (int position = top; position < cards.length; position++) {
 
-            if (index < cards.size()) {
-                cardsInDeck += index + ": " + card.toString() + "\n";
+            if (position < cards.length - 1) {
+                cardsInDeck += index + ": " + Cards.toString(cards[position]) + "\n";
             } else {
-                cardsInDeck += index + ": " + card.toString();
+                cardsInDeck += index + ": " + Cards.toString(cards[position]);
             }
 
             index += 1;
@@ -100,18 +168,18 @@ public class Deck {
     }
 
     /**
-     * This method returns the number of Card objects left in the current Deck.
+     * This method returns the number of cards left in the current Deck.
      *
      * @return an int with the number of cards left in the current Deck.
      */
     public int getCardsLeft() {
-        return cardsLeft;
+        return cards.length - top;
     }
 
     /**
      * This method returns true if the Deck is empty.
      */
     public boolean isEmpty() {
-        return cards.size() == 0;
+        return top == cards.length;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,359 @@
+/**
+ * EndgameSolver.java
+ *
+ * Exhaustive solver for the end of a solitaire game, used for the analysis PlayingBoard shows at GAME OVER. From a Board and the cards left in its Deck it searches every
+ * order of claims, with the rules of PlayingBoard.restoreBoard() and Board.addThreeMoreCards() (a claim is refilled
+ * to 12 cards while the Deck has three cards, three more cards are dealt only when the board has no SET), and returns
+ * the fewest cards that can be left on the board and in the Deck at the end.
+ *
+ * By default the Deck is dealt in its real order. solveAnyOrder() also lets every deal be any three of the cards left,
+ * which tells whether some order of the Deck could have been cleared; it is limited to MAX_ANY_ORDER_CARDS cards in
+ * the Deck.
+ *
+ * Positions already searched are kept in a transposition table keyed by the mask of the cards on the board and the
+ * mask of the cards in the Deck, so claim orders that reach the same position are only searched once.
+ *
+ * Usage: java EndgameSolver [seed] [cards left in the deck]
+ *     (plays a game by always claiming the first SET until the Deck is that small, then solves the rest)
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.util.Arrays;
+
+
+public final class EndgameSolver {
+
+    public static final int MAX_ANY_ORDER_CARDS = 9;    // Largest Deck solveAnyOrder() accepts.
+
+    private static final int FULL_BOARD = 12;
+
+    private final int[] deck;           // Cards left in the Deck, in dealing order.
+    private final boolean anyOrder;     // True if deals may be any three cards of the Deck.
+    private final Table table = new Table();
+
+
+    private EndgameSolver(int[] deck, boolean anyOrder) {
+        this.deck = deck;
+        this.anyOrder = anyOrder;
+    }
+
+
+    /**
+     * This method returns the fewest cards that can be left at the end of the game, dealing the Deck in its order.
+     *
+     * @param board the Board to solve from. It is not changed.
+     * @return the fewest cards left on the board and in the Deck at the end of the game; 0 if it can be cleared.
+     */
+    public static int solve(Board board) {
+        return new EndgameSolver(board.getCurrentDeck().getCardsInOrder(), false).start(board);
+    }
+
+
+    /**
+     * This method returns the fewest cards that can be left at the end of the game over every order of the cards left
+     * in the Deck.
+     *
+     * @param board the Board to solve from. It is not changed.
+     * @return the fewest cards left on the board and in the Deck at the end of the game; 0 if it can be cleared.
+     * @throws IllegalArgumentException if the Deck has more than MAX_ANY_ORDER_CARDS cards.
+     */
+    public static int solveAnyOrder(Board board) {
+
+        int[] deck = board.getCurrentDeck().getCardsInOrder();
+        if (deck.length > MAX_ANY_ORDER_CARDS) {
+            throw new IllegalArgumentException("Cannot try every order of " + deck.length + " cards");
+        }
+
+        return new EndgameSolver(deck, true).start(board);
+    }
+
+
+    /*
+     * Private helper method that starts the search from a Board.
+     */
+    private int start(Board board) {
+
+        long deckLow = 0;
+        long deckHigh = 0;
+        for (int card : deck) {
+            if (card < 64) {
+                deckLow |= 1L << card;
+            } else {
+                deckHigh |= 1L << (card - 64);
+            }
+        }
+
+        return search(board.getBoardMaskLow(), board.getBoardMaskHigh(), deckLow, deckHigh, 0);
+    }
+
+
+    /*
+     * Private helper method that returns the fewest cards that can be left from a position. The Deck is given both as
+     * a mask and, when it is dealt in order, as the index of its next card.
+     */
+    private int search(long low, long high, long deckLow, long deckHigh, int top) {
+
+        int known = table.get(low, high, deckLow, deckHigh);
+        if (known >= 0) {
+            return known;
+        }
+
+        int size = Long.bitCount(low) + Long.bitCount(high);
+        int left = Long.bitCount(deckLow) + Long.bitCount(deckHigh);
+        int best = Integer.MAX_VALUE;
+
+        int[] cards = cards(low, high, size);
+        int bound = anyOrder ? lowerBound(low | deckLow, high | deckHigh) : 0;
+
+        for (int index1 = 0; index1 < size && best > bound; index1++) {
+            for (int index2 = index1 + 1; index2 < size && best > bound; index2++) {
+
+                int card3 = Cards.third(cards[index1], cards[index2]);
+                if (card3 <= cards[index2] || !has(low, high, card3)) {
+                    continue;       // Every SET is claimed once, from its two smallest cards.
+                }
+
+                long claimedLow = clear(clear(clear(low, cards[index1]), cards[index2]), card3);
+                long claimedHigh = clearHigh(clearHigh(clearHigh(high, cards[index1]), cards[index2]), card3);
+
+                int leftOver = size - 3 < FULL_BOARD && left >= 3
+                        ? deal(claimedLow, claimedHigh, deckLow, deckHigh, top, 3)
+                        : search(claimedLow, claimedHigh, deckLow, deckHigh, top);
+                best = Math.min(best, leftOver);
+            }
+        }
+
+        if (best == Integer.MAX_VALUE) {
+            // No SET on the board: three more cards if the board allows it, otherwise the game is over.
+            best = size <= FULL_BOARD && left > 0
+                    ? deal(low, high, deckLow, deckHigh, top, Math.min(3, left))
+                    : size + left;
+        }
+
+        table.put(low, high, deckLow, deckHigh, best);
+        return best;
+    }
+
+
+    /*
+     * Private helper method that deals cards from the Deck and searches on: the next cards of the Deck if it is dealt
+     * in order, otherwise every choice of cards, keeping the best.
+     */
+    private int deal(long low, long high, long deckLow, long deckHigh, int top, int count) {
+
+        if (!anyOrder) {
+            for (int index = 0; index < count; index++) {
+                int card = deck[top + index];
+                low = set(low, card);
+                high = setHigh(high, card);
+                deckLow = clear(deckLow, card);
+                deckHigh = clearHigh(deckHigh, card);
+            }
+            return search(low, high, deckLow, deckHigh, top + count);
+        }
+
+        return dealAny(low, high, deckLow, deckHigh, count, -1,
+                lowerBound(low | deckLow, high | deckHigh));
+    }
+
+
+    /*
+     * Private helper method that deals count more cards of the Deck, each with a larger id than the last one dealt, and
+     * returns the best result over every choice. The search stops once a choice reaches the bound.
+     */
+    private int dealAny(long low, long high, long deckLow, long deckHigh, int count, int after, int bound) {
+
+        if (count == 0) {
+            return search(low, high, deckLow, deckHigh, 0);
+        }
+
+        int best = Integer.MAX_VALUE;
+        for (int index = 0; index < deck.length && best > bound; index++) {
+            int card = deck[index];
+            if (card > after && has(deckLow, deckHigh, card)) {
+                best = Math.min(best, dealAny(set(low, card), setHigh(high, card), clear(deckLow, card),
+                        clearHigh(deckHigh, card), count - 1, card, bound));
+            }
+        }
+        return best;
+    }
+
+
+    /*
+     * Private helper method that returns a lower bound on the cards left from a position, used to stop the search in
+     * any order early: a card that is in no SET with the other cards still in play can never be claimed, and cards
+     * are claimed three at a time.
+     */
+    private static int lowerBound(long low, long high) {
+
+        int[] cards = cards(low, high, Long.bitCount(low) + Long.bitCount(high));
+        boolean[] claimable = new boolean[Cards.DECK_SIZE];
+
+        for (int index1 = 0; index1 < cards.length; index1++) {
+            for (int index2 = index1 + 1; index2 < cards.length; index2++) {
+                int card3 = Cards.third(cards[index1], cards[index2]);
+                if (has(low, high, card3)) {
+                    claimable[cards[index1]] = true;
+                    claimable[cards[index2]] = true;
+                }
+            }
+        }
+
+        int dead = 0;
+        for (int card : cards) {
+            if (!claimable[card]) {
+                dead++;
+            }
+        }
+
+        return dead + (cards.length - dead) % 3;
+    }
+
+
+    /*
+     * Private helper methods for the two-long card masks, as in Board: ids 0 - 63 in the low long, 64 - 80 in the
+     * high one.
+     */
+    private static boolean has(long low, long high, int card) {
+        return ((card < 64 ? low : high) >>> card & 1L) != 0;
+    }
+
+    private static long set(long low, int card) {
+        return card < 64 ? low | 1L << card : low;
+    }
+
+    private static long setHigh(long high, int card) {
+        return card < 64 ? high : high | 1L << (card - 64);
+    }
+
+    private static long clear(long low, int card) {
+        return card < 64 ? low & ~(1L << card) : low;
+    }
+
+    private static long clearHigh(long high, int card) {
+        return card < 64 ? high : high & ~(1L << (card - 64));
+    }
+
+    private static int[] cards(long low, long high, int size) {
+        int[] cards = new int[size];
+        int index = 0;
+        for (long bits = low; bits != 0; bits &= bits - 1) {
+            cards[index++] = Long.numberOfTrailingZeros(bits);
+        }
+        for (long bits = high; bits != 0; bits &= bits - 1) {
+            cards[index++] = 64 + Long.numberOfTrailingZeros(bits);
+        }
+        return cards;
+    }
+
+
+    /*
+     * Transposition table: open addressing over four parallel arrays of mask words, doubled when half full.
+     */
+    private static final class Table {
+
+        private long[] boardLow = new long[1 << 12];
+        private long[] boardHigh = new long[1 << 12];
+        private long[] deckLow = new long[1 << 12];
+        private long[] deckHigh = new long[1 << 12];
+        private byte[] values = new byte[1 << 12];     // Cards left plus one; 0 marks an empty entry.
+        private int size;
+
+        int get(long low, long high, long lowDeck, long highDeck) {
+            int mask = values.length - 1;
+            for (int slot = slot(low, high, lowDeck, highDeck); values[slot] != 0; slot = (slot + 1) & mask) {
+                if (boardLow[slot] == low && boardHigh[slot] == high && deckLow[slot] == lowDeck
+                        && deckHigh[slot] == highDeck) {
+                    return values[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void put(long low, long high, long lowDeck, long highDeck, int cardsLeft) {
+
+            if (2 * (size + 1) > values.length) {
+                grow();
+            }
+
+            int slot = slot(low, high, lowDeck, highDeck);
+            while (values[slot] != 0) {
+                slot = (slot + 1) & (values.length - 1);
+            }
+
+            boardLow[slot] = low;
+            boardHigh[slot] = high;
+            deckLow[slot] = lowDeck;
+            deckHigh[slot] = highDeck;
+            values[slot] = (byte) (cardsLeft + 1);
+            size++;
+        }
+
+        private int slot(long low, long high, long lowDeck, long highDeck) {
+            long hash = (low * 0x9E3779B97F4A7C15L + high) * 0x9E3779B97F4A7C15L + lowDeck;
+            hash = (hash * 0x9E3779B97F4A7C15L + highDeck) * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & (values.length - 1);
+        }
+
+        private void grow() {
+
+            long[] oldBoardLow = boardLow;
+            long[] oldBoardHigh = boardHigh;
+            long[] oldDeckLow = deckLow;
+            long[] oldDeckHigh = deckHigh;
+            byte[] oldValues = values;
+
+            int capacity = oldValues.length * 2;
+            boardLow = new long[capacity];
+            boardHigh = new long[capacity];
+            deckLow = new long[capacity];
+            deckHigh = new long[capacity];
+            values = new byte[capacity];
+            size = 0;
+
+            for (int slot = 0; slot < oldValues.length; slot++) {
+                if (oldValues[slot] != 0) {
+                    put(oldBoardLow[slot], oldBoardHigh[slot], oldDeckLow[slot], oldDeckHigh[slot],
+                            oldValues[slot] - 1);
+                }
+            }
+        }
+    }
+
+
+    public static void main(String[] args) {
+
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        int cardsLeft = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+
+        Board board = new Board(seed);
+        Deck deck = board.getCurrentDeck();
+
+        // Play the opening like SolitaireSimulator until the Deck is small enough.
+        while (deck.getCardsLeft() > cardsLeft) {
+            if (board.hasAnySet()) {
+                for (int card : board.getSetsAvailable().get(0)) {
+                    board.removeFromCurrentBoard(card);
+                }
+                board.refill();
+            } else if (board.addThreeMoreCards() == null) {
+                break;
+            }
+        }
+
+        System.out.println(board.getBoardSize() + " cards on the board " + Arrays.toString(board.getCurrentBoard())
+                + ", " + deck.getCardsLeft() + " in the deck");
+
+        long start = System.nanoTime();
+        int best = solve(board);
+        System.out.printf("In deck order: %d cards left at best (%.1f ms)%n", best, (System.nanoTime() - start) / 1e6);
+
+        if (deck.getCardsLeft() <= MAX_ANY_ORDER_CARDS) {
+            start = System.nanoTime();
+            best = solveAnyOrder(board);
+            System.out.printf("In any order: %d cards left at best (%.1f ms)%n", best,
+                    (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * EngineEvents.java
+ *
+ * Java Flight Recorder events of the engine, in the "SET Game" category, so a recording shows deals, SET searches,
+ * claims, refills and card face loading next to GC pauses and EDT stalls without attaching a profiler.
+ *
+ * The project targets Java 8, where jdk.jfr only exists from 8u262 on, so the events are defined at run time through
+ * jdk.jfr.EventFactory, found by reflection; on a JVM without it they are simply never enabled. begin() returns null
+ * unless a recording has the event enabled, so a disabled event costs one check and allocates nothing:
+ *
+ *   EngineEvents.Span span = EngineEvents.CLAIM.begin();
+ *   ...
+ *   if (span != null) {
+ *       span.commit(card1, card2, card3, valid, reason, boardSize);
+ *   }
+ *
+ * The values passed to commit() follow the order of the fields of the event.
+ *
+ * Record with e.g.  java -XX:StartFlightRecording=filename=set.jfr,settings=profile Game
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public final class EngineEvents {
+
+    /**
+     * A new Board shuffling its Deck and dealing the first cards.
+     */
+    static final EngineEvents DEAL = new EngineEvents("setgame.Deal", "Deal", "Engine",
+            "A Board is built and its first cards are dealt",
+            int.class, "boardSize", "Board Size",
+            int.class, "setsFound", "SETs Found",
+            int.class, "cardsLeft", "Cards Left",
+            long.class, "seed", "Seed");
+
+    /**
+     * A search of every SET on the board from scratch, see Board.findSets().
+     */
+    static final EngineEvents FIND_SETS = new EngineEvents("setgame.FindSets", "Find SETs", "Engine",
+            "The SET index of a Board is rebuilt from scratch",
+            int.class, "boardSize", "Board Size",
+            int.class, "setsFound", "SETs Found");
+
+    /**
+     * Three cards checked for a SET, see Board.checkForSet(). The reason is the name of the SetVerdict of a rejected
+     * claim, null for a SET.
+     */
+    static final EngineEvents CLAIM = new EngineEvents("setgame.Claim", "Claim", "Engine",
+            "Three cards are checked for a SET",
+            int.class, "card1", "Card 1",
+            int.class, "card2", "Card 2",
+            int.class, "card3", "Card 3",
+            boolean.class, "valid", "Valid",
+            String.class, "reason", "Rejection Reason",
+            int.class, "boardSize", "Board Size");
+
+    /**
+     * The board refilled after a claim, see PlayingBoard.restoreBoard().
+     */
+    static final EngineEvents RESTORE = new EngineEvents("setgame.Restore", "Restore Board", "Engine",
+            "Cards are dealt to refill the board after a claim",
+            int.class, "cardsDealt", "Cards Dealt",
+            int.class, "boardSize", "Board Size",
+            int.class, "setsFound", "SETs Found",
+            int.class, "cardsLeft", "Cards Left");
+
+    /**
+     * The face of a card composited from its sprite, see CardFaces. Compatible is true if the face was made for the
+     * GraphicsConfiguration of the display.
+     */
+    static final EngineEvents CARD_FACE = new EngineEvents("setgame.CardFace", "Card Face", "Rendering",
+            "The face of a card is loaded and composited for painting",
+            int.class, "card", "Card",
+            boolean.class, "compatible", "Compatible Image");
+
+    private final Object factory;       // The jdk.jfr.EventFactory of the event, or null without JFR.
+    private final Object eventType;     // Its jdk.jfr.EventType.
+
+
+    /*
+     * Constructor that defines an event. The fields are given as type, name and label triples.
+     */
+    private EngineEvents(String name, String label, String category, String description, Object... fields) {
+
+        Object created = null;
+        if (Jfr.AVAILABLE) {
+            try {
+                created = Jfr.createFactory(name, label, category, description, fields);
+            } catch (final Throwable e) {
+                e.printStackTrace();
+            }
+        }
+
+        factory = created;
+        eventType = created != null ? Jfr.call(Jfr.GET_EVENT_TYPE, created) : null;
+    }
+
+
+    /**
+     * This method returns true if a recording has the event enabled.
+     *
+     * @return true if the event is recorded.
+     */
+    public boolean isEnabled() {
+        try {
+            return eventType != null && (boolean) Jfr.IS_ENABLED.invokeExact(eventType);
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * This method starts timing an event, if it is enabled.
+     *
+     * @return the event being timed, or null if the event is not recorded.
+     */
+    public Span begin() {
+
+        if (!isEnabled()) {
+            return null;
+        }
+
+        Object event = Jfr.call(Jfr.NEW_EVENT, factory);
+        Jfr.call(Jfr.BEGIN, event);
+        return new Span(event);
+    }
+
+
+    /**
+     * An event being timed.
+     */
+    public static final class Span {
+
+        private final Object event;     // The jdk.jfr.Event.
+
+        private Span(Object event) {
+            this.event = event;
+        }
+
+        /**
+         * This method stops timing the event and commits it with the given field values, unless it is shorter than
+         * the threshold of the recording.
+         *
+         * @param values the values of the fields, in the order they were defined.
+         */
+        public void commit(Object... values) {
+
+            Jfr.call(Jfr.END, event);
+
+            try {
+                if (!(boolean) Jfr.SHOULD_COMMIT.invokeExact(event)) {
+                    return;
+                }
+                for (int index = 0; index < values.length; index++) {
+                    Jfr.SET.invokeExact(event, index, values[index]);
+                }
+            } catch (final Throwable e) {
+                throw new IllegalStateException(e);
+            }
+
+            Jfr.call(Jfr.COMMIT, event);
+        }
+    }
+
+
+    /*
+     * The jdk.jfr API, looked up once. AVAILABLE is false on a JVM without it.
+     */
+    private static final class Jfr {
+
+        static final boolean AVAILABLE;
+
+        static final MethodHandle GET_EVENT_TYPE;  // EventFactory.getEventType()
+        static final MethodHandle NEW_EVENT;       // EventFactory.newEvent()
+        static final MethodHandle IS_ENABLED;      // EventType.isEnabled()
+        static final MethodHandle BEGIN;           // Event.begin()
+        static final MethodHandle END;             // Event.end()
+        static final MethodHandle SHOULD_COMMIT;   // Event.shouldCommit()
+        static final MethodHandle SET;             // Event.set(int, Object)
+        static final MethodHandle COMMIT;          // Event.commit()
+
+        private static Class<?> eventFactory;
+        private static Class<?> annotationElement;
+        private static Class<?> valueDescriptor;
+
+        static {
+            MethodHandle[] handles = new MethodHandle[8];
+            boolean available = false;
+
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                eventFactory = Class.forName("jdk.jfr.EventFactory");
+                annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+                valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> eventType = Class.forName("jdk.jfr.EventType");
+                Class<?> event = Class.forName("jdk.jfr.Event");
+
+                MethodType toObject = MethodType.methodType(Object.class, Object.class);
+                MethodType toBoolean = MethodType.methodType(boolean.class, Object.class);
+                MethodType toVoid = MethodType.methodType(void.class, Object.class);
+
+                handles[0] = lookup.findVirtual(eventFactory, "getEventType", MethodType.methodType(eventType))
+                        .asType(toObject);
+                handles[1] = lookup.findVirtual(eventFactory, "newEvent", MethodType.methodType(event))
+                        .asType(toObject);
+                handles[2] = lookup.findVirtual(eventType, "isEnabled", MethodType.methodType(boolean.class))
+                        .asType(toBoolean);
+                handles[3] = lookup.findVirtual(event, "begin", MethodType.methodType(void.class)).asType(toVoid);
+                handles[4] = lookup.findVirtual(event, "end", MethodType.methodType(void.class)).asType(toVoid);
+                handles[5] = lookup.findVirtual(event, "shouldCommit", MethodType.methodType(boolean.class))
+                        .asType(toBoolean);
+                handles[6] = lookup.findVirtual(event, "set",
+                        MethodType.methodType(void.class, int.class, Object.class))
+                        .asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+                handles[7] = lookup.findVirtual(event, "commit", MethodType.methodType(void.class)).asType(toVoid);
+
+                available = true;
+
+            } catch (final ReflectiveOperationException | LinkageError e) {
+                // No JFR on this JVM: every event stays disabled.
+            }
+
+            AVAILABLE = available;
+            GET_EVENT_TYPE = handles[0];
+            NEW_EVENT = handles[1];
+            IS_ENABLED = handles[2];
+            BEGIN = handles[3];
+            END = handles[4];
+            SHOULD_COMMIT = handles[5];
+            SET = handles[6];
+            COMMIT = handles[7];
+        }
+
+        /*
+         * Creates the EventFactory of an event, with its annotations and fields.
+         */
+        static Object createFactory(String name, String label, String category, String description,
+                                    Object[] fields) throws ReflectiveOperationException {
+
+            List<Object> annotations = Arrays.asList(
+                    annotation("jdk.jfr.Name", name),
+                    annotation("jdk.jfr.Label", label),
+                    annotation("jdk.jfr.Category", new String[]{"SET Game", category}),
+                    annotation("jdk.jfr.Description", description));
+
+            List<Object> descriptors = new ArrayList<>();
+            for (int index = 0; index < fields.length; index += 3) {
+                descriptors.add(valueDescriptor.getConstructor(Class.class, String.class, List.class)
+                        .newInstance(fields[index], fields[index + 1],
+                                Collections.singletonList(annotation("jdk.jfr.Label", fields[index + 2]))));
+            }
+
+            // The factory registers the event when it is created.
+            return eventFactory.getMethod("create", List.class, List.class).invoke(null, annotations, descriptors);
+        }
+
+        /*
+         * Creates a jdk.jfr.AnnotationElement of the annotation with the given class name and value.
+         */
+        private static Object annotation(String type, Object value) throws ReflectiveOperationException {
+            return annotationElement.getConstructor(Class.class, Object.class)
+                    .newInstance(Class.forName(type), value);
+        }
+
+        /*
+         * Calls a handle that takes one object, wrapping what it throws.
+         */
+        static Object call(MethodHandle handle, Object target) {
+            try {
+                if (handle.type().returnType() == void.class) {
+                    handle.invokeExact(target);
+                    return null;
+                }
+                return (Object) handle.invokeExact(target);
+            } catch (final Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * EngineMetrics.java
+ *
+ * Counters and latency histograms of the rules engine, published over JMX as SetGame:type=EngineMetrics (see
+ * EngineMetricsMXBean). The Boards Game and SetServer play on record into the shared instance: the SET searches and
+ * their duration, the SETs on every board settled after a deal or a refill, the verdicts of checkForSet(), Add Three,
+ * the Deck running out and the end of games. Boards dealt for analysis, replays, snapshots, puzzles, simulations and
+ * benchmarks are not given the metrics and record nothing. Board keeps its SETs indexed as cards are dealt, so a SET search is the indexing of the
+ * cards of a deal, a refill or an Add Three, or a full findSets().
+ * Every counter is a LongAdder, so recording is a contention-free increment on the thread that plays, and the sums are
+ * only taken when a JMX client reads them.
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+
+public final class EngineMetrics implements EngineMetricsMXBean {
+
+    public static final String OBJECT_NAME = "SetGame:type=EngineMetrics";
+
+    private static final int LATENCY_BUCKETS = 40;     // Up to 2^40 ns, about 18 minutes.
+    private static final int MAX_SETS = 32;             // Boards with more SETs than this are counted as MAX_SETS.
+
+    private static final EngineMetrics INSTANCE = register(new EngineMetrics());
+
+    private final LongAdder setSearches = new LongAdder();
+    private final LongAdder setSearchNanos = new LongAdder();
+    private final LongAdder[] setSearchLatency = adders(LATENCY_BUCKETS);
+    private final LongAdder[] setsPerBoard = adders(MAX_SETS + 1);
+    private final LongAdder[] verdicts = adders(SetVerdict.values().length);
+    private final LongAdder addThreeCalls = new LongAdder();
+    private final LongAdder deckExhaustions = new LongAdder();
+    private final LongAdder gamesCompleted = new LongAdder();
+
+
+    private EngineMetrics() {
+    }
+
+
+    /**
+     * This method returns the metrics shared by every Board, registering them with the platform MBean server the
+     * first time.
+     *
+     * @return the engine metrics.
+     */
+    public static EngineMetrics get() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * This method records a search for the SETs of a board.
+     *
+     * @param nanos the duration of the search.
+     */
+    void setSearch(long nanos) {
+        setSearches.increment();
+        setSearchNanos.add(nanos);
+        setSearchLatency[Math.min(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)), LATENCY_BUCKETS - 1)].increment();
+    }
+
+    /**
+     * This method records the number of SETs on a board settled after a deal or a refill.
+     *
+     * @param sets the SETs on the board.
+     */
+    void boardSettled(int sets) {
+        setsPerBoard[Math.min(sets, MAX_SETS)].increment();
+    }
+
+    /**
+     * This method records the verdict of Board.checkForSet().
+     *
+     * @param verdict the verdict on the claim.
+     */
+    void claimChecked(SetVerdict verdict) {
+        verdicts[verdict.ordinal()].increment();
+    }
+
+    /**
+     * This method records a call to Board.addThreeMoreCards() that dealt cards.
+     */
+    void addThree() {
+        addThreeCalls.increment();
+    }
+
+    /**
+     * This method records a Deck dealing its last card.
+     */
+    void deckExhausted() {
+        deckExhaustions.increment();
+    }
+
+    /**
+     * This method records the end of a game.
+     */
+    void gameCompleted() {
+        gamesCompleted.increment();
+    }
+
+
+    @Override
+    public long getSetSearches() {
+        return setSearches.sum();
+    }
+
+    @Override
+    public long getSetSearchNanos() {
+        return setSearchNanos.sum();
+    }
+
+    @Override
+    public long[] getSetSearchLatencyHistogram() {
+        return sums(setSearchLatency);
+    }
+
+    @Override
+    public long[] getSetsPerBoardHistogram() {
+        return sums(setsPerBoard);
+    }
+
+    @Override
+    public long getValidClaims() {
+        return verdicts[SetVerdict.SET.ordinal()].sum();
+    }
+
+    @Override
+    public long getRejectedClaims() {
+        long rejected = 0;
+        for (SetVerdict verdict : SetVerdict.values()) {
+            if (!verdict.isSet()) {
+                rejected += verdicts[verdict.ordinal()].sum();
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public Map<String, Long> getRejectedClaimsByReason() {
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        for (SetVerdict verdict : SetVerdict.values()) {
+            if (!verdict.isSet()) {
+                rejected.put(verdict.name(), verdicts[verdict.ordinal()].sum());
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public long getAddThreeCalls() {
+        return addThreeCalls.sum();
+    }
+
+    @Override
+    public long getDeckExhaustions() {
+        return deckExhaustions.sum();
+    }
+
+    @Override
+    public long getGamesCompleted() {
+        return gamesCompleted.sum();
+    }
+
+    @Override
+    public void reset() {
+        setSearches.reset();
+        setSearchNanos.reset();
+        addThreeCalls.reset();
+        deckExhaustions.reset();
+        gamesCompleted.reset();
+        for (LongAdder[] histogram : new LongAdder[][]{setSearchLatency, setsPerBoard, verdicts}) {
+            for (LongAdder adder : histogram) {
+                adder.reset();
+            }
+        }
+    }
+
+
+    /*
+     * Private helper method that registers the metrics with the platform MBean server. The engine keeps working if
+     * JMX is not available.
+     */
+    private static EngineMetrics register(EngineMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (final JMException | SecurityException e) {
+            e.printStackTrace();
+        }
+        return metrics;
+    }
+
+    /*
+     * Private helper method that creates an array of zeroed counters.
+     */
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int index = 0; index < count; index++) {
+            adders[index] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /*
+     * Private helper method that reads an array of counters.
+     */
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int index = 0; index < adders.length; index++) {
+            sums[index] = adders[index].sum();
+        }
+        return sums;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * EngineMetricsMXBean.java
+ *
+ * Management interface of EngineMetrics, registered as SetGame:type=EngineMetrics on the platform MBean server.
+ * Histograms are arrays of counts: bucket i of the latency histogram counts the calls that took from 2^i to
+ * 2^(i+1) - 1 nanoseconds, bucket i of the SETs histogram the boards with i SETs (the last bucket also holds the
+ * boards with more).
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.util.Map;
+
+
+public interface EngineMetricsMXBean {
+
+    /**
+     * Gets the number of SET searches: the indexing of the cards of a deal, refill or Add Three, or a Board.findSets()
+     *
+     * @return the SET searches
+     */
+    long getSetSearches();
+
+    /**
+     * Gets the time spent searching for SETs
+     *
+     * @return the total duration of the SET searches, in nanoseconds
+     */
+    long getSetSearchNanos();
+
+    /**
+     * Gets the durations of the SET searches
+     *
+     * @return the searches per power of two of nanoseconds
+     */
+    long[] getSetSearchLatencyHistogram();
+
+    /**
+     * Gets the number of SETs on the boards settled after a deal or a refill
+     *
+     * @return the boards per number of SETs
+     */
+    long[] getSetsPerBoardHistogram();
+
+    /**
+     * Gets the number of claims that were a SET
+     *
+     * @return the valid claims
+     */
+    long getValidClaims();
+
+    /**
+     * Gets the number of claims that were not a SET
+     *
+     * @return the rejected claims
+     */
+    long getRejectedClaims();
+
+    /**
+     * Gets the rejected claims by the attribute that failed
+     *
+     * @return the rejected claims per SetVerdict name
+     */
+    Map<String, Long> getRejectedClaimsByReason();
+
+    /**
+     * Gets the number of times three more cards were dealt
+     *
+     * @return the Add Three calls that dealt cards
+     */
+    long getAddThreeCalls();
+
+    /**
+     * Gets the number of Decks that dealt their last card
+     *
+     * @return the Deck exhaustions
+     */
+    long getDeckExhaustions();
+
+    /**
+     * Gets the number of games that ended with no SET and no card left to deal
+     *
+     * @return the completed games
+     */
+    long getGamesCompleted();
+
+    /**
+     * This method sets every counter and histogram back to zero.
+     */
+    void reset();
+}
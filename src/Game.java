@@ -10,7 +10,11 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
 
 
 public class Game extends JApplet {
@@ -19,6 +23,15 @@ public class Game extends JApplet {
 
     private Board brd;
 
+    // Optional audit log every game is written to, enabled with -Dset.eventLog=<file>.
+    private GameEventLog eventLog;
+
+    private int deal;   // Number of the latest deal; a deal that finishes after a newer one or a mode change is dropped.
+
+    // Time the planner searches for Show SET. The hint must be shown within 100 ms of the click, so this leaves room
+    // for handing the search to a worker and the result back to the Event Dispatch Thread.
+    private static final long HINT_BUDGET_MILLIS = 80;
+
 
     JLabel game_label = new JLabel("SET");
 
@@ -46,11 +59,36 @@ public class Game extends JApplet {
     public void init() {
         this.setSize(800, 600);
 
+        // Decode the card images once, before the first Deal.
+        SpriteCache.preload();
+
+        String eventLogFile = System.getProperty("set.eventLog");
+        if (eventLogFile != null) {
+            try {
+                eventLog = new GameEventLog(Paths.get(eventLogFile));
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+
         setup_layout();
         setup_button_listeners();
     }
 
 
+    // Called when the applet is unloaded: flushes the event log to disk and closes it.
+    public void destroy() {
+        if (eventLog != null) {
+            try {
+                eventLog.close();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+            eventLog = null;
+        }
+    }
+
+
     // Sets up button listeners.
     private void setup_button_listeners() {
 
@@ -111,6 +149,38 @@ public class Game extends JApplet {
     }
 
 
+    /*
+     * Private helper method that deals a new Board on a worker, so the Event Dispatch Thread never waits for the
+     * shuffle, the first SETs or the card faces, and hands the Board to showBoard on the Event Dispatch Thread unless
+     * another deal was started or the mode was changed in the meantime.
+     */
+    private void dealInBackground(Consumer<Board> showBoard) {
+
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        int thisDeal = ++deal;
+
+        PlayingBoard.runOnEngine(() -> {
+            Board board = new Board(new Deck(), eventLog, EngineMetrics.get());
+            for (int card : board.getCurrentBoard()) {
+                CardFaces.get(card, configuration);
+            }
+            return board;
+        }, board -> {
+            if (thisDeal == deal) {
+                showBoard.accept(board);
+            }
+        });
+    }
+
+
+    /*
+     * Private helper method that returns true if the Board can be used by the Event Dispatch Thread.
+     */
+    private boolean boardReady() {
+        return board_panel != null && !board_panel.isEngineBusy();
+    }
+
+
     /**
      * This button is located at the bottom of the user interface and it allows the user to change the game mode between
      * tutorial and solitaire.
@@ -129,7 +199,10 @@ public class Game extends JApplet {
             add_three.setVisible(false);
             next_set.setVisible(false);
 
-            remove(board_panel);
+            deal++;     // Drops a deal still in flight.
+            if (board_panel != null) {
+                remove(board_panel);
+            }
 
         }
     }
@@ -163,26 +236,49 @@ public class Game extends JApplet {
 
 
     /**
-     * Shows a SET that is already on the current board.
+     * Shows the best SET on the current board, as found by a MonteCarloPlanner search on a worker, or suggests Add Three
+     * if that is the better move.
      */
     private class ShowSetButtonListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
 
-            ArrayList<ArrayList<Card>> setsAvailable = brd.getSetsAvailable();
+            if (!boardReady()) {
+                return;
+            }
 
-            if (!setsAvailable.isEmpty()) {
+            if (brd.hasAnySet()) {
 
-                ArrayList<Card> possibleSet = brd.getSetsAvailable().get(0);
+                // The planner copies the board, so the player can keep playing while it searches.
+                Board searched = brd;
+                MonteCarloPlanner planner = new MonteCarloPlanner(brd);
 
+                PlayingBoard.runOnEngine(() -> planner.search(HINT_BUDGET_MILLIS, System.nanoTime()), hint -> {
 
-                for (Card card : possibleSet) {
-                    card.setBackground(Color.pink);
-                    card.revalidate();
-                }
+                    if (hint == null || brd != searched || !boardReady()) {
+                        return;
+                    }
+
+                    if (hint.isAddThree()) {
+                        PlayingBoard.infoBox("Best move: Add Three.\n" + hint, "SET");
+                        return;
+                    }
+
+                    int[] possibleSet = hint.getSet();
+                    for (int card : possibleSet) {
+                        if (board_panel.getCard(card) == null) {
+                            return;     // The board changed during the search.
+                        }
+                    }
+
+                    for (int card : possibleSet) {
+                        board_panel.getCard(card).setBackground(Color.pink);
+                    }
+                });
 
             } else {
-                brd.infoBox("No SET in the current board.", "SET");
+                // The exact odds take well under a millisecond, so they are computed right here.
+                PlayingBoard.infoBox("No SET in the current board.\n" + DealLookahead.of(brd), "SET");
             }
 
             board_panel.revalidate();
@@ -199,16 +295,20 @@ public class Game extends JApplet {
         @Override
         public void actionPerformed(ActionEvent e) {
 
-            ArrayList<ArrayList<Card>> setsAvailable = brd.getSetsAvailable();
+            if (!boardReady()) {
+                return;
+            }
+
+            ArrayList<int[]> setsAvailable = brd.getSetsAvailable();
 
             show_sets.setVisible(false);
 
             if (setsAvailable.size() > 1) {
 
-                ArrayList<Card> nextSet = brd.getNextSetAvaialble();
+                int[] nextSet = brd.getNextSetAvaialble();
 
-                for (Card card : nextSet) {
-                    card.setBackground(Color.lightGray);
+                for (int card : nextSet) {
+                    board_panel.getCard(card).setBackground(Color.lightGray);
                 }
 
                 next_set.setVisible(true);
@@ -218,10 +318,10 @@ public class Game extends JApplet {
 
             if (setsAvailable.size() == 1) {
 
-                ArrayList<Card> nextSet = brd.getNextSetAvaialble();
+                int[] nextSet = brd.getNextSetAvaialble();
 
-                for (Card card : nextSet) {
-                    card.setBackground(Color.lightGray);
+                for (int card : nextSet) {
+                    board_panel.getCard(card).setBackground(Color.lightGray);
                 }
                 tut_deal.setVisible(true);
 
@@ -238,23 +338,27 @@ public class Game extends JApplet {
         @Override
         public void actionPerformed(ActionEvent e) {
 
-            brd = new Board();
-            if(board_panel != null){
-                remove(board_panel);
-            }
+            tut_deal.setVisible(false);
 
-            board_panel = new PlayingBoard(brd, true);
-            board_panel.setBackground(Color.GREEN);
-            add("Center", board_panel);
+            dealInBackground(board -> {
 
-            ArrayList<Card> cardsOnBoard = brd.getCurrentBoard();
+                brd = board;
+                if(board_panel != null){
+                    remove(board_panel);
+                }
 
-            tut_deal.setVisible(false);
-            show_sets.setVisible(true);
+                board_panel = new PlayingBoard(brd, true);
+                board_panel.setBackground(Color.GREEN);
+                add("Center", board_panel);
 
-            for (Card card : cardsOnBoard) {
-                board_panel.addCard(card);
-            }
+                int[] cardsOnBoard = brd.getCurrentBoard();
+
+                show_sets.setVisible(true);
+
+                for (int card : cardsOnBoard) {
+                    board_panel.addCard(card);
+                }
+            });
         }
     }
 
@@ -267,57 +371,46 @@ public class Game extends JApplet {
         @Override
         public void actionPerformed(ActionEvent e) {
 
+            sol_deal.setVisible(false);
 
-            brd = new Board();
-            board_panel = new PlayingBoard(brd, false);
-
-            board_panel.setBackground(Color.GREEN);
-            add("Center", board_panel);
-
+            dealInBackground(board -> {
 
-            ArrayList<Card> cardsOnBoard = brd.getCurrentBoard();
+                brd = board;
+                board_panel = new PlayingBoard(brd, false);
 
-            ArrayList<ArrayList<Card>> setsAvailable = brd.getSetsAvailable();
+                board_panel.setBackground(Color.GREEN);
+                add("Center", board_panel);
 
-            sol_deal.setVisible(false);
 
-            add_three.setVisible(true);
+                int[] cardsOnBoard = brd.getCurrentBoard();
 
-            if (!setsAvailable.isEmpty()) {
-                show_set.setVisible(true);
-            }
+                add_three.setVisible(true);
 
-            for (ArrayList<Card> set : setsAvailable) {
-                System.out.println(set.toString());
-            }
+                if (brd.hasAnySet()) {
+                    show_set.setVisible(true);
+                }
 
-            for (Card card : cardsOnBoard) {
-                board_panel.addCard(card);
-            }
+                brd.sets().forEach(set -> System.out.println(Arrays.toString(set)));
 
-            board_panel.revalidate();
+                for (int card : cardsOnBoard) {
+                    board_panel.addCard(card);
+                }
 
+                board_panel.revalidate();
+            });
 
         }
     }
 
 
     /**
-     * Calls brd to add three cards to the board and then takes the array of cards that were added and adds it
-     * to the display.
+     * Asks board_panel to add three cards to the board on a worker and to display the cards that were added.
      */
     private class AddThreeButtonListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
 
-            ArrayList<Card> cardsToAdd = brd.addThreeMoreCards();
-            if (cardsToAdd != null) {
-                for (Card card : cardsToAdd) {
-                    if (card != null) {
-                        board_panel.addCard(card);
-                    }
-                }
-            }
+            board_panel.addThreeMoreCards();
         }
     }
 
@@ -340,15 +433,19 @@ public class Game extends JApplet {
         @Override
         public void actionPerformed(ActionEvent e) {
 
+            if (!boardReady()) {
+                return;
+            }
+
             backToWhiteBakcground();
 
-            ArrayList<ArrayList<Card>> setsAvailable = brd.getSetsAvailable();
+            ArrayList<int[]> setsAvailable = brd.getSetsAvailable();
 
             if (setsAvailable.size() > brd.getSetsAvailableIndex()) {
-                ArrayList<Card> nextSet = brd.getNextSetAvaialble();
+                int[] nextSet = brd.getNextSetAvaialble();
 
-                for (Card card : nextSet) {
-                    card.setBackground(Color.lightGray);
+                for (int card : nextSet) {
+                    board_panel.getCard(card).setBackground(Color.lightGray);
                 }
 
             }
@@ -0,0 +1,360 @@
+/**
+ * GameEventLog.java
+ *
+ * Append-only binary log of the actions of one game, written to a memory-mapped file. Every event is a fixed-width
+ * record, so appending is a handful of absolute puts into the mapped buffer and never allocates. A Board created with
+ * a log starts a new game in it and writes to it as the game is played; replay() scans a log and rebuilds the Board of
+ * one of its games, at its end or after a given number of records, which is what is needed to audit a disputed game.
+ *
+ * Record layout (RECORD_SIZE bytes, big-endian):
+ *   byte  type       one of the event types below
+ *   byte  card1      card ids (see Cards.java), Cards.NO_CARD if unused
+ *   byte  card2
+ *   byte  card3
+ *   byte  reason     SetVerdict.getCode() of a CLAIM or REJECT, 0 otherwise
+ *   3 bytes game     number of the game the event belongs to, from 1, given by start()
+ *   long  value      for START the seed of the Deck, otherwise the time of the event (System.currentTimeMillis())
+ *
+ * Every Board of the applet shares the log and their workers may overlap, e.g. a claim on the old board still running
+ * while the next one is dealt, so appends are synchronized, each one takes its own record, and replay() only applies
+ * the records of the game it rebuilds.
+ *
+ * Usage: java GameEventLog file [game [records]]
+ *   prints the events of a log, or of one game and the Board they rebuild, optionally from the first records only
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+public class GameEventLog implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 16;
+
+    // Event types. 0 marks the unused space at the end of the file.
+    public static final byte START = 1;         // A Board was created; value is the seed of its Deck.
+    public static final byte DEAL = 2;          // card1 was dealt from the Deck to the board.
+    public static final byte SELECT = 3;        // The player selected card1.
+    public static final byte DESELECT = 4;      // The player deselected card1.
+    public static final byte CLEAR = 5;         // The selection was cleared.
+    public static final byte CLAIM = 6;         // card1, card2 and card3 were checked and are a SET.
+    public static final byte REJECT = 7;        // card1, card2 and card3 were checked and are not a SET.
+    public static final byte REMOVE = 8;        // card1 was removed from the board.
+    public static final byte ADD_THREE = 9;     // The player asked for three more cards; their DEALs follow.
+
+    public static final int MAX_GAMES = (1 << 24) - 1;     // Game numbers take three bytes.
+
+    private static final int INITIAL_RECORDS = 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;   // Byte offset of the next record.
+    private int lastGame;   // Number of the last game started in the log.
+    private boolean closed;
+
+
+    /**
+     * Constructor for a GameEventLog. It opens the file, creating it if needed, and appends after the last record in
+     * it, numbering new games after the last one in it.
+     *
+     * @param file the file of the log.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public GameEventLog(Path file) throws IOException {
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        map(Math.max(channel.size(), (long) INITIAL_RECORDS * RECORD_SIZE));
+
+        while (position < buffer.capacity() && buffer.get(position) != 0) {
+            if (buffer.get(position) == START) {
+                lastGame = Math.max(lastGame, game(buffer, position));
+            }
+            position += RECORD_SIZE;
+        }
+    }
+
+
+    /**
+     * This method starts a new game: it appends its START event and returns the number the events of the game are
+     * appended with.
+     *
+     * @param seed the seed of the Deck of the game.
+     * @return the number of the game.
+     * @throws IllegalStateException if the log already holds MAX_GAMES games.
+     */
+    public synchronized int start(long seed) {
+
+        if (lastGame == MAX_GAMES) {
+            throw new IllegalStateException("The game event log is full");
+        }
+
+        lastGame++;
+        append(START, lastGame, Cards.NO_CARD, Cards.NO_CARD, Cards.NO_CARD, 0, seed);
+        return lastGame;
+    }
+
+
+    /**
+     * This method appends an event with one card, or none.
+     *
+     * @param type the type of the event.
+     * @param game the number of the game, see start().
+     * @param card the card of the event, or Cards.NO_CARD.
+     */
+    public void append(byte type, int game, int card) {
+        append(type, game, card, Cards.NO_CARD, Cards.NO_CARD, 0, System.currentTimeMillis());
+    }
+
+
+    /**
+     * This method appends an event. Events appended after close() are dropped.
+     *
+     * @param type   the type of the event.
+     * @param game   the number of the game, see start().
+     * @param card1  the first card of the event, or Cards.NO_CARD.
+     * @param card2  the second card of the event, or Cards.NO_CARD.
+     * @param card3  the third card of the event, or Cards.NO_CARD.
+     * @param reason the SetVerdict code of a CLAIM or REJECT, 0 otherwise.
+     * @param value  the seed of a START, the time of the event otherwise.
+     */
+    public synchronized void append(byte type, int game, int card1, int card2, int card3, int reason, long value) {
+
+        if (closed) {
+            return;
+        }
+        if (position + RECORD_SIZE > buffer.capacity()) {
+            grow();
+        }
+
+        buffer.put(position, type);
+        buffer.put(position + 1, (byte) card1);
+        buffer.put(position + 2, (byte) card2);
+        buffer.put(position + 3, (byte) card3);
+        buffer.put(position + 4, (byte) reason);
+        buffer.put(position + 5, (byte) (game >>> 16));
+        buffer.put(position + 6, (byte) (game >>> 8));
+        buffer.put(position + 7, (byte) game);
+        buffer.putLong(position + 8, value);
+
+        position += RECORD_SIZE;
+    }
+
+
+    /**
+     * This method returns the number of events in the log.
+     *
+     * @return the number of records written.
+     */
+    public synchronized int size() {
+        return position / RECORD_SIZE;
+    }
+
+
+    /**
+     * This method flushes the log to disk and closes it.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            buffer.force();
+            channel.close();
+        }
+    }
+
+
+    /*
+     * Private helper method that maps the first bytes of the file.
+     */
+    private void map(long bytes) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    }
+
+
+    /*
+     * Private helper method that doubles the mapped size of the log. This is the only place that allocates, and it
+     * happens once per doubling.
+     */
+    private void grow() {
+        try {
+            map((long) buffer.capacity() * 2);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Cannot grow the game event log", e);
+        }
+    }
+
+
+    /**
+     * This method rebuilds the Board of a game of a log: it starts from the seed in the START record of the game and
+     * applies its deals, removals and selections in order. The events of other games are skipped.
+     *
+     * @param file the file of the log.
+     * @param game the number of the game.
+     * @return the Board as it was after the last event of the game, or null if the log holds no such game.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalStateException if the log does not match the Deck of the seed of the game.
+     */
+    public static Board replay(Path file, int game) throws IOException {
+        return replay(file, game, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * This method rebuilds the Board of a game of a log as it was at some point of the log: only the events of the
+     * game in the first records of the log are applied.
+     *
+     * @param file    the file of the log.
+     * @param game    the number of the game.
+     * @param records the number of records of the log to read, counting the ones of every game.
+     * @return the Board as it was after the given records, or null if the game does not start in them.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalStateException if the log does not match the Deck of the seed of the game.
+     */
+    public static Board replay(Path file, int game, int records) throws IOException {
+        return scan(file, game, records, false);
+    }
+
+
+    /*
+     * Private helper method that replays a game of a log, printing its events if verbose is true. Game 0 prints the
+     * events of every game and replays none.
+     */
+    private static Board scan(Path file, int game, int records, boolean verbose) throws IOException {
+
+        Board board = null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            for (int position = 0; position / RECORD_SIZE < records && position + RECORD_SIZE <= buffer.capacity();
+                 position += RECORD_SIZE) {
+
+                byte type = buffer.get(position);
+                if (type == 0) {
+                    break;
+                }
+
+                int eventGame = game(buffer, position);
+                if (game != 0 && eventGame != game) {
+                    continue;
+                }
+
+                int card1 = buffer.get(position + 1);
+                int card2 = buffer.get(position + 2);
+                int card3 = buffer.get(position + 3);
+                long value = buffer.getLong(position + 8);
+
+                if (verbose) {
+                    System.out.println("game " + eventGame + ": "
+                            + describe(type, card1, card2, card3, buffer.get(position + 4), value));
+                }
+
+                if (game == 0) {
+                    continue;
+                }
+                if (type == START) {
+                    if (board != null) {
+                        throw new IllegalStateException("Game " + game + " started again at record "
+                                + position / RECORD_SIZE);
+                    }
+                    board = new Board(new Deck(value), null, null, 0);
+                    continue;
+                }
+                if (board == null) {
+                    throw new IllegalStateException("Event before START at record " + position / RECORD_SIZE);
+                }
+
+                switch (type) {
+                    case DEAL:
+                        if (board.addCardFromDeck() != card1) {
+                            throw new IllegalStateException("Deal of record " + position / RECORD_SIZE
+                                    + " does not match the Deck of the seed");
+                        }
+                        break;
+                    case SELECT:
+                        board.addCardsToSelected(card1);
+                        break;
+                    case DESELECT:
+                        board.removeCardsFromSelected(card1);
+                        break;
+                    case CLEAR:
+                        board.clearSelected();
+                        break;
+                    case REMOVE:
+                        board.removeFromCurrentBoard(card1);
+                        break;
+                    default:
+                        // CLAIM, REJECT and ADD_THREE are verdicts and requests; the deals and removals that follow
+                        // them are logged on their own.
+                        break;
+                }
+            }
+        }
+
+        return board;
+    }
+
+
+    /*
+     * Private helper method that reads the number of the game of a record.
+     */
+    private static int game(MappedByteBuffer buffer, int position) {
+        return (buffer.get(position + 5) & 0xFF) << 16 | (buffer.get(position + 6) & 0xFF) << 8
+                | buffer.get(position + 7) & 0xFF;
+    }
+
+
+    /*
+     * Private helper method that returns a line of text for an event.
+     */
+    private static String describe(byte type, int card1, int card2, int card3, int reason, long value) {
+
+        String[] names = {"", "START", "DEAL", "SELECT", "DESELECT", "CLEAR", "CLAIM", "REJECT", "REMOVE",
+                "ADD_THREE"};
+        String name = type > 0 && type < names.length ? names[type] : "UNKNOWN(" + type + ")";
+
+        if (type == START) {
+            return name + " seed " + value;
+        }
+
+        String line = value + " " + name;
+        for (int card : new int[]{card1, card2, card3}) {
+            if (card >= 0) {
+                line += " [" + Cards.toString(card) + "]";
+            }
+        }
+        if (type == REJECT) {
+            SetVerdict verdict = SetVerdict.ofCode(reason);
+            line += " (" + (verdict != null ? verdict.getMessage() : "reason " + reason) + ")";
+        }
+
+        return line;
+    }
+
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length == 0) {
+            System.out.println("Usage: java GameEventLog file [game [records]]");
+            return;
+        }
+
+        int game = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int records = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        Board board = scan(Paths.get(args[0]), game, records, true);
+
+        if (board != null) {
+            System.out.println();
+            System.out.print(board);
+            System.out.println(board.getCurrentDeck().getCardsLeft() + " cards left in the Deck");
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/**
+ * MonteCarloPlanner.java
+ *
+ * Best-move engine for solitaire. It runs a Monte Carlo tree search over the moves of the player, claiming one of the
+ * SETs on the board or asking for three more cards, and scores each move by the cards left at the end of the game.
+ * The order of the Deck is not known to the player, so every playout first shuffles the cards left in it: the tree is
+ * keyed by moves only, and a move is scored against every order of the Deck it was tried with.
+ *
+ * The search uses root parallelism: every core grows its own tree from the same position with its own random stream
+ * until the time budget runs out, and the visits of the moves at the root are added up at the end. The move visited
+ * most is the answer.
+ *
+ * Usage: java MonteCarloPlanner [seed] [budget in ms]    (prints the best move on a new board)
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+
+public final class MonteCarloPlanner {
+
+    public static final int ADD_THREE = -1;     // The move that asks for three more cards.
+
+    private static final int FULL_BOARD = 12;
+    private static final int MAX_MOVES = 128;           // More than the SETs any board can hold, plus Add Three.
+    private static final double EXPLORATION = 0.7;      // UCB1 exploration constant, for rewards between 0 and 1.
+    private static final double WORST_CARDS_LEFT = 21;  // Games that end with this many cards or more score 0.
+
+    private final Position root;    // Position to search from, copied from the Board.
+
+
+    /**
+     * Constructor for a MonteCarloPlanner. It copies the position of the Board, so the Board can be played on while the
+     * search runs on another thread.
+     *
+     * @param board the Board to plan for.
+     */
+    public MonteCarloPlanner(Board board) {
+        root = new Position(board);
+    }
+
+
+    /**
+     * This method searches for the best move until the time budget runs out.
+     *
+     * @param budgetMillis the time budget of the search, in milliseconds.
+     * @param seed         the seed of the random streams of the playouts.
+     * @return the best move found, or null if the game is over.
+     */
+    public Hint search(long budgetMillis, long seed) {
+
+        int[] moves = new int[MAX_MOVES];
+        if (root.moves(moves) == 0) {
+            return null;
+        }
+
+        long deadline = System.nanoTime() + budgetMillis * 1000000L;
+
+        // SplittableRandom is not thread-safe, so every tree gets its own stream, split here.
+        int trees = ForkJoinPool.getCommonPoolParallelism();
+        SplittableRandom random = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[trees];
+        for (int index = 0; index < trees; index++) {
+            randoms[index] = random.split();
+        }
+
+        Node[] roots = IntStream.range(0, trees).parallel()
+                .mapToObj(tree -> grow(randoms[tree], deadline))
+                .toArray(Node[]::new);
+
+        // Add up the root moves of every tree and pick the one visited most.
+        Node best = null;
+        long playouts = 0;
+        ArrayList<Node> merged = new ArrayList<>();
+        for (Node tree : roots) {
+            playouts += tree.visits;
+            for (Node child : tree.children) {
+                Node total = find(merged, child.move);
+                if (total == null) {
+                    total = new Node(child.move);
+                    merged.add(total);
+                }
+                total.visits += child.visits;
+                total.reward += child.reward;
+            }
+        }
+        for (Node move : merged) {
+            if (best == null || move.visits > best.visits) {
+                best = move;
+            }
+        }
+
+        double meanReward = best.visits > 0 ? best.reward / best.visits : 0;
+        return new Hint(best.move, WORST_CARDS_LEFT * (1 - meanReward), playouts);
+    }
+
+
+    /*
+     * Private helper method that grows one search tree until the deadline and returns its root.
+     */
+    private Node grow(SplittableRandom random, long deadline) {
+
+        Node tree = new Node(0);
+        Position position = new Position(root);
+        int[] moves = new int[MAX_MOVES];
+
+        do {
+            position.copyFrom(root);
+            position.shuffleDeck(random);
+            playout(tree, position, moves, random);
+        } while (System.nanoTime() < deadline);
+
+        return tree;
+    }
+
+
+    /*
+     * Private helper method for one iteration of the search: walk down the tree with UCB1 over the moves allowed in
+     * this order of the Deck, add the first move not tried yet, finish the game at random and score every node on the
+     * way.
+     */
+    private static void playout(Node tree, Position position, int[] moves, SplittableRandom random) {
+
+        Node[] path = new Node[Cards.DECK_SIZE];
+        int depth = 0;
+        Node node = tree;
+        path[depth++] = node;
+
+        while (true) {
+
+            int count = position.moves(moves);
+            if (count == 0) {
+                break;
+            }
+
+            Node next = null;
+            for (int index = 0; index < count && next == null; index++) {
+                if (find(node.children, moves[index]) == null) {
+                    next = new Node(moves[index]);
+                    next.availability = 1;
+                    node.children.add(next);
+                }
+            }
+
+            if (next == null) {
+                double best = Double.NEGATIVE_INFINITY;
+                for (int index = 0; index < count; index++) {
+                    Node child = find(node.children, moves[index]);
+                    child.availability++;
+                    double score = child.reward / child.visits
+                            + EXPLORATION * Math.sqrt(Math.log(child.availability) / child.visits);
+                    if (score > best) {
+                        best = score;
+                        next = child;
+                    }
+                }
+            }
+
+            position.play(next.move);
+            node = next;
+            path[depth++] = node;
+
+            if (node.visits == 0) {
+                break;      // The new node is scored by a random playout.
+            }
+        }
+
+        double reward = Math.max(0, 1 - position.finish(moves, random) / WORST_CARDS_LEFT);
+        for (int index = 0; index < depth; index++) {
+            path[index].visits++;
+            path[index].reward += reward;
+        }
+    }
+
+
+    /*
+     * Private helper method that returns the child of a node for a move, or null.
+     */
+    private static Node find(ArrayList<Node> children, int move) {
+        for (Node child : children) {
+            if (child.move == move) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * The answer of a search: the move to play and how well it did.
+     */
+    public static final class Hint {
+
+        private final int move;
+        private final double expectedCardsLeft;
+        private final long playouts;
+
+        private Hint(int move, double expectedCardsLeft, long playouts) {
+            this.move = move;
+            this.expectedCardsLeft = expectedCardsLeft;
+            this.playouts = playouts;
+        }
+
+        /**
+         * Gets the SET to claim
+         *
+         * @return the three card ids of the SET, or null if the best move is Add Three
+         */
+        public int[] getSet() {
+            return move == ADD_THREE ? null
+                    : new int[]{move / (Cards.DECK_SIZE * Cards.DECK_SIZE), move / Cards.DECK_SIZE % Cards.DECK_SIZE,
+                    move % Cards.DECK_SIZE};
+        }
+
+        /**
+         * Gets whether the best move is to ask for three more cards
+         *
+         * @return true if the best move is Add Three
+         */
+        public boolean isAddThree() {
+            return move == ADD_THREE;
+        }
+
+        /**
+         * Gets the cards the playouts of the move left at the end of the game, on average (games that ended with
+         * WORST_CARDS_LEFT cards or more count as that many)
+         *
+         * @return the estimated cards left after the move
+         */
+        public double getExpectedCardsLeft() {
+            return expectedCardsLeft;
+        }
+
+        /**
+         * Gets the number of playouts of the search
+         *
+         * @return the playouts over all the trees
+         */
+        public long getPlayouts() {
+            return playouts;
+        }
+
+        @Override
+        public String toString() {
+            return (isAddThree() ? "Add Three" : "claim " + Arrays.toString(getSet()))
+                    + String.format(", about %.1f cards left at the end (%d playouts)", expectedCardsLeft, playouts);
+        }
+    }
+
+
+    /*
+     * Node of a search tree: the move that leads to it and the playouts through it.
+     */
+    private static final class Node {
+
+        final int move;
+        final ArrayList<Node> children = new ArrayList<>(4);
+        int visits;
+        int availability;   // Playouts in which the move was allowed when its parent was reached.
+        double reward;      // Sum of the rewards of the playouts through the node.
+
+        Node(int move) {
+            this.move = move;
+        }
+    }
+
+
+    /*
+     * Game position for the playouts, with the rules of SolitaireSimulator.playGame(): a claim is refilled to 12 cards
+     * while the Deck has three cards, and three more cards can be asked for while the board has at most 12 cards.
+     * Cards on the board are kept in an array and a two-long mask, as in Board.
+     */
+    private static final class Position {
+
+        private final int[] cards = new int[Cards.DECK_SIZE];
+        private int size;
+        private long low;
+        private long high;
+        private final int[] deck;
+        private int top;
+
+        Position(Board board) {
+            int[] onBoard = board.getCurrentBoard();
+            for (int card : onBoard) {
+                add(card);
+            }
+            deck = board.getCurrentDeck().getCardsInOrder();
+        }
+
+        Position(Position other) {
+            deck = new int[other.deck.length];
+            copyFrom(other);
+        }
+
+        void copyFrom(Position other) {
+            System.arraycopy(other.cards, 0, cards, 0, other.size);
+            size = other.size;
+            low = other.low;
+            high = other.high;
+            System.arraycopy(other.deck, 0, deck, 0, deck.length);
+            top = other.top;
+        }
+
+        void shuffleDeck(SplittableRandom random) {
+            for (int index = deck.length - 1; index > top; index--) {
+                int swap = top + random.nextInt(index - top + 1);
+                int card = deck[index];
+                deck[index] = deck[swap];
+                deck[swap] = card;
+            }
+        }
+
+        /*
+         * Writes the moves allowed in this position, every SET as a * 81 * 81 + b * 81 + c with a < b < c and then
+         * Add Three, and returns how many there are.
+         */
+        int moves(int[] moves) {
+
+            int count = 0;
+            long low = this.low;
+            long high = this.high;
+
+            for (int index1 = 0; index1 < size; index1++) {
+                for (int index2 = index1 + 1; index2 < size; index2++) {
+                    int card1 = Math.min(cards[index1], cards[index2]);
+                    int card2 = Math.max(cards[index1], cards[index2]);
+                    int card3 = Cards.third(card1, card2);
+                    if (card3 > card2 && ((card3 < 64 ? low : high) >>> card3 & 1L) != 0) {
+                        moves[count++] = (card1 * Cards.DECK_SIZE + card2) * Cards.DECK_SIZE + card3;
+                    }
+                }
+            }
+
+            if (size <= FULL_BOARD && top < deck.length) {
+                moves[count++] = ADD_THREE;
+            }
+
+            return count;
+        }
+
+        void play(int move) {
+
+            if (move == ADD_THREE) {
+                for (int index = 0; index < 3 && top < deck.length; index++) {
+                    add(deck[top++]);
+                }
+                return;
+            }
+
+            remove(move / (Cards.DECK_SIZE * Cards.DECK_SIZE));
+            remove(move / Cards.DECK_SIZE % Cards.DECK_SIZE);
+            remove(move % Cards.DECK_SIZE);
+
+            if (size < FULL_BOARD && deck.length - top >= 3) {
+                for (int index = 0; index < 3; index++) {
+                    add(deck[top++]);
+                }
+            }
+        }
+
+        /*
+         * Plays to the end of the game, claiming a random SET while there is one and asking for three more cards
+         * only when there is none, and returns the cards left.
+         */
+        int finish(int[] moves, SplittableRandom random) {
+
+            while (true) {
+                int count = moves(moves);
+                if (count == 0) {
+                    return size + deck.length - top;
+                }
+                int sets = moves[count - 1] == ADD_THREE ? count - 1 : count;
+                play(sets > 0 ? moves[random.nextInt(sets)] : ADD_THREE);
+            }
+        }
+
+        private void add(int card) {
+            cards[size++] = card;
+            if (card < 64) {
+                low |= 1L << card;
+            } else {
+                high |= 1L << (card - 64);
+            }
+        }
+
+        private void remove(int card) {
+            for (int index = 0; index < size; index++) {
+                if (cards[index] == card) {
+                    cards[index] = cards[--size];
+                    break;
+                }
+            }
+            if (card < 64) {
+                low &= ~(1L << card);
+            } else {
+                high &= ~(1L << (card - 64));
+            }
+        }
+    }
+
+
+    public static void main(String[] args) {
+
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : 100;
+
+        Board board = new Board(seed);
+        System.out.print(board);
+
+        // The first search also pays for the JIT compiling the playouts.
+        new MonteCarloPlanner(board).search(budget, seed);
+
+        long start = System.nanoTime();
+        Hint hint = new MonteCarloPlanner(board).search(budget, seed);
+        System.out.printf("%s in %.1f ms%n", hint, (System.nanoTime() - start) / 1e6);
+    }
+}
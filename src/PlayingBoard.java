@@ -2,6 +2,14 @@
  * PlayingBoard.java
  * <p/>
  * A class for holding a visual representation of a board of SET cards.
+ * <p/>
+ * The cards are shown in a fixed array of slots. A claimed card is replaced in its own slot, so a claim only repaints
+ * the slots that changed; the GridLayout is only laid out again when slots are added or dropped, i.e. when the board
+ * grows to 15 cards and shrinks back to 12.
+ * <p/>
+ * Engine work on the Board (checking a claim, dealing, keeping the SETs up to date) runs on a SwingWorker through
+ * runOnEngine(); only the cards that changed are handed back to the Event Dispatch Thread. While a worker owns the
+ * Board, isEngineBusy() is true and clicks are ignored, so the Board is only ever used by one thread at a time.
  *
  * @author Nico Suarez-Canton, Samson Drews, Alex Brown
  */
@@ -10,7 +18,9 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 // It is a custom subclass of JPanel and implements the interface MouseListener.
 public class PlayingBoard extends JPanel implements MouseListener {
@@ -18,6 +28,26 @@ public class PlayingBoard extends JPanel implements MouseListener {
     // Reference to object that holds the game logic; i.e. Deck & Rules
     Board currentBoard;
 
+    private static final int MIN_SLOTS = 12;    // Slots kept on the PlayingBoard once they are dealt.
+    private static final int MAX_SLOTS = 15;    // Slots of the 3 x 5 GridLayout.
+
+    // Slots of the PlayingBoard in display order. The first slotsInUse are in the container; the rest are kept so
+    // they can be added again without allocating.
+    private Card[] slots = new Card[MAX_SLOTS];
+    private int slotsInUse;
+
+    // Card panels currently displayed, indexed by card id.
+    private Card[] cardPanels = new Card[Cards.DECK_SIZE];
+
+    // True while a worker owns currentBoard.
+    private boolean engineBusy;
+
+    // Snapshots of the game for the analysis shown at GAME OVER: as dealt, and when the Deck first got small enough to
+    // try every order of it. Both are taken and used by the workers.
+    private byte[] openingSnapshot;
+    private byte[] endgameSnapshot;
+    private String gameOverMessage;     // Set by a claim that ends the game.
+
     /**
      * Constructor for the PlayingBoard class. It takes a reference to the current Board object, which gets
      * initialized in Game.java
@@ -32,6 +62,7 @@ public class PlayingBoard extends JPanel implements MouseListener {
         // Necessary for JPanel to keep track of clicks.
         if (!tutorialMode) {
             addMouseListener(this);
+            openingSnapshot = BoardSnapshot.encode(currentBoard);
         }
         // LayoutManager so the cards display properly.
         this.setLayout(new GridLayout(3, 5, 5, 5));
@@ -40,15 +71,38 @@ public class PlayingBoard extends JPanel implements MouseListener {
 
 
     /**
-     * This method adds a Card object to the visual representation of the current board.
+     * This method adds a Card object to the visual representation of the current board. The card goes in the first
+     * empty slot; a new slot is only added if every slot is taken.
      *
-     * @param cardToAdd a Card object to display on the PlayingBoard.
+     * @param cardToAdd the id of the card to display on the PlayingBoard.
      */
-    public void addCard(Card cardToAdd) {
+    public void addCard(int cardToAdd) {
+
+        int slot = firstEmptySlot();
+
+        if (slot < 0) {
+            slot = slotsInUse++;
+            if (slots[slot] == null) {
+                slots[slot] = new Card(Cards.NO_CARD);
+            }
+            this.add(slots[slot]); // JPanel.add() method.
+            this.revalidate(); // Necessary to lay out the new slot.
+        }
+
+        slots[slot].setCard(cardToAdd);
+        cardPanels[cardToAdd] = slots[slot];
+
+    }
 
-        this.add(cardToAdd); // JPanel.add() method.
-        this.revalidate(); // Necessary to refresh the view.
 
+    /**
+     * This method returns the Card panel displaying the given card.
+     *
+     * @param card the id of the card.
+     * @return the Card panel showing that card, or null if it is not on the PlayingBoard.
+     */
+    public Card getCard(int card) {
+        return cardPanels[card];
     }
 
 
@@ -59,100 +113,289 @@ public class PlayingBoard extends JPanel implements MouseListener {
             this.remove(component);
         }
 
+        slots = new Card[MAX_SLOTS];
+        slotsInUse = 0;
+        cardPanels = new Card[Cards.DECK_SIZE];
+
 
     }
 
 
     /**
-     * This method adds cards to the current PlayingBoard according to the state of the current Deck.
+     * This method returns true while a worker is changing the Board. The Board must not be used until it is false.
+     *
+     * @return true if engine work on the Board is in flight.
      */
-    public void restoreBoard() {
+    public boolean isEngineBusy() {
+        return engineBusy;
+    }
 
-        Deck currentDeck = currentBoard.getCurrentDeck();
-        int cardsLeft = currentDeck.getCardsLeft();
 
-        boolean deckHasCards = cardsLeft >= 3;
+    /**
+     * This method runs a piece of engine work on a SwingWorker and hands its result to the Event Dispatch Thread.
+     * Everything the work did happens-before publish is called, so the result and the objects it touched can be used
+     * by Swing code without further locking.
+     *
+     * @param engineWork the work to run off the Event Dispatch Thread; it must not touch Swing components.
+     * @param publish    called on the Event Dispatch Thread with the result of the work.
+     * @param <T>        the type of the result.
+     */
+    static <T> void runOnEngine(Supplier<T> engineWork, Consumer<T> publish) {
+        runOnEngine(engineWork, publish, () -> { });
+    }
 
-        int currentSize = currentBoard.getCurrentBoard().size();
 
-        if (currentSize < 12) {
+    /**
+     * This method runs a piece of engine work on a SwingWorker like runOnEngine(engineWork, publish), and then runs
+     * finished on the Event Dispatch Thread even if the work or publish threw.
+     *
+     * @param engineWork the work to run off the Event Dispatch Thread; it must not touch Swing components.
+     * @param publish    called on the Event Dispatch Thread with the result of the work.
+     * @param finished   called on the Event Dispatch Thread last, whatever happened.
+     * @param <T>        the type of the result.
+     */
+    static <T> void runOnEngine(Supplier<T> engineWork, Consumer<T> publish, Runnable finished) {
 
-            if (deckHasCards) {
+        new SwingWorker<T, Void>() {
 
-                for (int index = 0; index < 3; index++) {
-                    this.add(currentBoard.addCardFromDeck());
+            @Override
+            protected T doInBackground() {
+                return engineWork.get();
+            }
 
+            @Override
+            protected void done() {
+                try {
+                    publish.accept(get());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (final ExecutionException e) {
+                    throw new IllegalStateException("Engine work failed", e.getCause());
+                } finally {
+                    finished.run();
                 }
+            }
+        }.execute();
+    }
 
-            } else {
 
-                for (int index = 0; index < 3; index++) {
-                    JPanel emptyCard = new JPanel();
-                    emptyCard.setBackground(Color.green);
-                    this.add(emptyCard);
+    /**
+     * This method asks the Board for three more cards on a worker and shows them once they are dealt.
+     */
+    public void addThreeMoreCards() {
+
+        if (engineBusy) {
+            return;
+        }
+
+        runOwningBoard(() -> {
+            int[] cardsToAdd = currentBoard.addThreeMoreCards();
+            noteEndgame();
+            return cardsToAdd;
+        }, cardsToAdd -> {
+            if (cardsToAdd != null) {
+                for (int card : cardsToAdd) {
+                    this.addCard(card);
                 }
             }
+        });
+    }
 
-        }
 
-        currentBoard.findSets();
+    /**
+     * This method adds cards to the current Board according to the state of the current Deck: if a claim left fewer
+     * than 12 cards, three cards are dealt. This is engine work and does not touch the PlayingBoard.
+     *
+     * @return the ids of the cards dealt, possibly none.
+     */
+    int[] restoreBoard() {
+
+        EngineEvents.Span event = EngineEvents.RESTORE.begin();
 
-        int possibleSets = currentBoard.getSetsAvailable().size();
+        int[] dealt = currentBoard.refill();
 
-        if (currentDeck.isEmpty() && possibleSets == 0) {
-            currentBoard.infoBox("GAME OVER\nClick 'Change Mode' to restart.", "Game Status");
+        if (event != null) {
+            event.commit(dealt.length, currentBoard.getBoardSize(), currentBoard.getSetsAvailable().size(),
+                    currentBoard.getCurrentDeck().getCardsLeft());
         }
 
+        return dealt;
+    }
+
 
-        this.revalidate();
+    /*
+     * Private helper method that checks a claim on a worker and then updates the slots on the Event Dispatch Thread.
+     * A valid SET is removed and replaced by restoreBoard(); a rejected one is explained to the user.
+     */
+    private void claim(int[] selected) {
 
+        runOwningBoard(() -> {
 
+            int[] dealt = null;     // Stays null if the cards are not a SET.
+
+            if (currentBoard.checkForSet(selected[0], selected[1], selected[2]).isSet()) {
+                for (int card : selected) {
+                    currentBoard.removeFromCurrentBoard(card);
+                }
+                dealt = restoreBoard();
+            }
+
+            currentBoard.clearSelected();
+            noteEndgame();
+
+            if (dealt != null && currentBoard.getCurrentDeck().isEmpty() && !currentBoard.hasAnySet()) {
+                gameOverMessage = analyzeGame();
+            }
+            return dealt;
+
+        }, dealt -> {
+
+            if (dealt != null) {
+
+                // The slots of the claimed cards are emptied in place and the new cards are dealt into them; if the
+                // board is back to 12 cards the extra slots are dropped. Once the Deck runs out, empty slots stay.
+                for (int card : selected) {
+                    cardPanels[card].setCard(Cards.NO_CARD);
+                    cardPanels[card] = null;
+                }
+                for (int card : dealt) {
+                    this.addCard(card);
+                }
+                compactSlots();
+
+                if (gameOverMessage != null) {
+                    infoBox(gameOverMessage, "Game Status");
+                }
+
+            } else {
+
+                for (int card : selected) {
+                    cardPanels[card].setBackground(Color.white);
+                    cardPanels[card].setSelected(false);
+                }
+
+                infoBox(currentBoard.getLastVerdict().getMessage(), "This is not a SET.");
+            }
+        });
     }
 
 
-    /**
-     * This method sets the card to selected if the users click on it. If the users clicks again on it again, this
-     * method does the opposite.
-     *
-     * @param e A MouseEvent
+    /*
+     * Private helper method that hands currentBoard to a worker: isEngineBusy() is true from now until the result is
+     * published, or the work failed.
      */
-    @Override
-    public void mouseClicked(MouseEvent e) {
+    private <T> void runOwningBoard(Supplier<T> engineWork, Consumer<T> publish) {
+        engineBusy = true;
+        runOnEngine(engineWork, publish, () -> engineBusy = false);
+    }
 
-        Object userClickedOn = getComponentAt(e.getPoint());
-        ArrayList<Card> selected = currentBoard.getSelected();
 
-        if (userClickedOn instanceof Card) {
+    /*
+     * Private helper method for the workers that keeps a snapshot of the game the first time the Deck is small
+     * enough for EndgameSolver.solveAnyOrder().
+     */
+    private void noteEndgame() {
+        if (openingSnapshot != null && endgameSnapshot == null
+                && currentBoard.getCurrentDeck().getCardsLeft() <= EndgameSolver.MAX_ANY_ORDER_CARDS) {
+            endgameSnapshot = BoardSnapshot.encode(currentBoard);
+        }
+    }
 
-            Card selectedCard = (Card) userClickedOn; // Cast the Card the user clicked on.
-            cardSelection(selectedCard);
 
-            if (selected.size() == 3) {
+    /*
+     * Private helper method for the workers that builds the GAME OVER message: the cards the player left, and the
+     * fewest cards the best play could have left with the same Deck and with any order of its last cards.
+     */
+    private String analyzeGame() {
 
-                if (currentBoard.checkForSet(selected.get(0), selected.get(1), selected.get(2), true)) {
+        int cardsLeft = currentBoard.getBoardSize();
+        String message = "GAME OVER\nYou left " + cardsLeft + " cards.";
 
+        if (openingSnapshot != null) {
+            int best = EndgameSolver.solve(BoardSnapshot.decode(openingSnapshot));
+            message += best == 0 ? "\nWith the same deck, the best play clears every card."
+                    : "\nWith the same deck, the best play leaves " + best + " cards.";
+        }
 
-                    for (Card card : selected) {
-                        this.remove(card);
-                        currentBoard.removeFromCurrentBoard(card);
-                    }
+        if (endgameSnapshot != null) {
+            Board endgame = BoardSnapshot.decode(endgameSnapshot);
+            int best = EndgameSolver.solveAnyOrder(endgame);
+            message += "\nFrom the last " + endgame.getCurrentDeck().getCardsLeft() + " cards of the deck, in any "
+                    + "order, the best play leaves " + best + " cards.";
+        }
 
+        return message + "\nClick 'Change Mode' to restart.";
+    }
 
-                    this.restoreBoard();
 
-                } else {
+    /*
+     * Private helper method that returns the first empty slot in use, or -1 if there is none.
+     */
+    private int firstEmptySlot() {
+        for (int slot = 0; slot < slotsInUse; slot++) {
+            if (slots[slot].isEmpty()) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+
+    /*
+     * Private helper method that drops the slots above MIN_SLOTS, moving their cards into empty slots first.
+     */
+    private void compactSlots() {
 
-                    for (Card card : selected) {
-                        card.setBackground(Color.white);
-                        card.setSelected(false);
-                    }
+        boolean dropped = false;
 
-                    this.revalidate();
+        while (slotsInUse > MIN_SLOTS) {
 
+            Card last = slots[slotsInUse - 1];
 
+            if (!last.isEmpty()) {
+                int free = firstEmptySlot();
+                if (free < 0 || free == slotsInUse - 1) {
+                    break;
                 }
+                slots[free].setCard(last.getId());
+                cardPanels[last.getId()] = slots[free];
+                last.setCard(Cards.NO_CARD);
+            }
+
+            this.remove(last);
+            slotsInUse--;
+            dropped = true;
+        }
+
+        if (dropped) {
+            this.revalidate();
+            this.repaint();
+        }
+    }
+
 
-                currentBoard.clearSelected();
+    /**
+     * This method sets the card to selected if the users click on it. If the users clicks again on it again, this
+     * method does the opposite.
+     *
+     * @param e A MouseEvent
+     */
+    @Override
+    public void mouseClicked(MouseEvent e) {
+
+        Object userClickedOn = getComponentAt(e.getPoint());
+
+        if (engineBusy) {
+            return;     // The Board belongs to a worker until the last claim is shown.
+        }
+
+        if (userClickedOn instanceof Card && !((Card) userClickedOn).isEmpty()) {
+
+            Card selectedCard = (Card) userClickedOn; // Cast the Card the user clicked on.
+            cardSelection(selectedCard);
+
+            if (currentBoard.getSelectedCount() == 3) {
+                claim(currentBoard.getSelected());
             }
 
         } else {
@@ -161,6 +404,18 @@ public class PlayingBoard extends JPanel implements MouseListener {
     }
 
 
+    /**
+     * This method shows a message to the user in a modal dialog. It must be called on the Event Dispatch Thread; the
+     * rules engine never calls it.
+     *
+     * @param infoMessage the message to show.
+     * @param titleBar    the title of the dialog.
+     */
+    public static void infoBox(String infoMessage, String titleBar) {
+        JOptionPane.showMessageDialog(null, infoMessage, "InfoBox: " + titleBar, JOptionPane.INFORMATION_MESSAGE);
+    }
+
+
     /*
      * Private helper method for giving the user visual feedback and modifying the state of a Card.
      */
@@ -169,11 +424,11 @@ public class PlayingBoard extends JPanel implements MouseListener {
         if (selectedCard.isSelected()) {
             selectedCard.setBackground(Color.white);
             selectedCard.setSelected(false);
-            currentBoard.removeCardsFromSelected(selectedCard);
+            currentBoard.removeCardsFromSelected(selectedCard.getId());
         } else {
             selectedCard.setBackground(Color.lightGray);
             selectedCard.setSelected(true);
-            currentBoard.addCardsToSelected(selectedCard);
+            currentBoard.addCardsToSelected(selectedCard.getId());
         }
     }
 
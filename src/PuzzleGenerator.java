@@ -0,0 +1,207 @@
+/**
+ * PuzzleGenerator.java
+ *
+ * Generator of drill boards with a given number of SETs: exactly N SETs, no SET at all (N = 0), or N SETs that share no
+ * cards. It uses rejection sampling over the seeds of new Boards. Attempt i shuffles the Deck new Board(seed + i) would
+ * deal and keeps the seed if the first 12 cards have the asked for SETs. No Board is built for an attempt: the cards
+ * are a 128-bit mask, and the SETs are counted by completing every pair of cards with Cards.third() and testing the
+ * mask for the third card. The attempts are spread across all cores
+ * and the puzzles kept are the first ones in attempt order, so the same arguments always give the same puzzles.
+ *
+ * A puzzle is the seed of its Board: new Board(seed) deals it again. PuzzleStore writes them to disk.
+ *
+ * Usage: java PuzzleGenerator file puzzles sets [disjoint] [seed]
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.stream.LongStream;
+
+
+public final class PuzzleGenerator {
+
+    // Attempts before the generator gives up on a rare shape: about 13 s on one core, so asking for many boards with
+    // 13 or 14 SETs, which only a few deals in 2^24 have, fails instead of pinning every core for hours.
+    public static final long MAX_ATTEMPTS = 1L << 24;
+
+    private static final int BOARD_SIZE = 12;
+    private static final int MAX_SETS = 14;             // The most SETs any 12 cards have.
+
+    private final int sets;             // SETs a puzzle has.
+    private final boolean disjoint;     // True if no two SETs of a puzzle may share a card.
+
+
+    /**
+     * Constructor for a PuzzleGenerator.
+     *
+     * @param sets     the number of SETs the boards must have, 0 for boards with no SET.
+     * @param disjoint true if no two SETs may share a card.
+     * @throws IllegalArgumentException if no board of 12 cards has that many SETs: more than 14, or more than 4 that
+     *                                  share no cards.
+     */
+    public PuzzleGenerator(int sets, boolean disjoint) {
+
+        if (sets < 0 || sets > MAX_SETS || disjoint && 3 * sets > BOARD_SIZE) {
+            throw new IllegalArgumentException("No board of 12 cards has " + sets
+                    + (disjoint ? " disjoint SETs" : " SETs"));
+        }
+
+        this.sets = sets;
+        this.disjoint = disjoint;
+    }
+
+
+    /**
+     * This method generates puzzles, trying the seeds from the given one up in parallel.
+     *
+     * @param puzzles the number of puzzles to generate.
+     * @param seed    the seed of the first attempt.
+     * @return the seeds of the Boards that match, in attempt order.
+     * @throws IllegalStateException if fewer puzzles were found in MAX_ATTEMPTS attempts.
+     */
+    public long[] generate(int puzzles, long seed) {
+
+        long[] found = LongStream.range(0, MAX_ATTEMPTS).parallel()
+                .map(attempt -> seed + attempt)
+                .filter(this::matches)
+                .limit(puzzles)
+                .toArray();
+
+        if (found.length < puzzles) {
+            throw new IllegalStateException("Only " + found.length + " puzzles found in " + MAX_ATTEMPTS
+                    + " attempts");
+        }
+
+        return found;
+    }
+
+
+    /**
+     * This method checks whether the Board dealt from a seed is a puzzle of this generator.
+     *
+     * @param seed the seed of the Board.
+     * @return true if the Board has the SETs asked for.
+     */
+    public boolean matches(long seed) {
+
+        // The same shuffle and deal as new Board(seed).
+        Deck deck = new Deck(seed);
+        deck.shuffe();
+
+        int[] cards = new int[BOARD_SIZE];
+        long low = 0;
+        long high = 0;
+        for (int index = 0; index < BOARD_SIZE; index++) {
+            int card = deck.deal();
+            cards[index] = card;
+            if (card < 64) {
+                low |= 1L << card;
+            } else {
+                high |= 1L << card;
+            }
+        }
+
+        return matches(cards, low, high);
+    }
+
+
+    /**
+     * This method checks whether a Board is a puzzle of this generator.
+     *
+     * @param board the Board to check.
+     * @return true if the Board has the SETs asked for.
+     */
+    public boolean matches(Board board) {
+        return matches(board.getCurrentBoard(), board.getBoardMaskLow(), board.getBoardMaskHigh());
+    }
+
+
+    /**
+     * Gets the number of SETs of the puzzles
+     *
+     * @return the SETs every puzzle has
+     */
+    public int getSets() {
+        return sets;
+    }
+
+    /**
+     * Gets whether the SETs of the puzzles share no cards
+     *
+     * @return true if no two SETs of a puzzle share a card
+     */
+    public boolean isDisjoint() {
+        return disjoint;
+    }
+
+
+    /*
+     * Private helper method that checks the SETs on a board, given its cards and their mask. A SET is reached from all
+     * three of its pairs, so it is only counted when the third card has the largest id. The SETs share no cards if no
+     * card of a SET is already in the mask of the cards of the SETs found before it.
+     */
+    private boolean matches(int[] cards, long low, long high) {
+
+        int found = 0;
+        long usedLow = 0;
+        long usedHigh = 0;
+
+        for (int index1 = 0; index1 < cards.length; index1++) {
+            for (int index2 = index1 + 1; index2 < cards.length; index2++) {
+
+                int card1 = cards[index1];
+                int card2 = cards[index2];
+                int card3 = Cards.third(card1, card2);
+
+                // Shifts of a long only use the low six bits of the distance, see Board.contains().
+                if (((card3 < 64 ? low : high) >>> card3 & 1L) == 0 || card3 < card1 || card3 < card2) {
+                    continue;
+                }
+
+                if (++found > sets) {
+                    return false;
+                }
+
+                if (disjoint) {
+                    for (int card : new int[]{card1, card2, card3}) {
+                        if (((card < 64 ? usedLow : usedHigh) >>> card & 1L) != 0) {
+                            return false;
+                        }
+                        if (card < 64) {
+                            usedLow |= 1L << card;
+                        } else {
+                            usedHigh |= 1L << card;
+                        }
+                    }
+                }
+            }
+        }
+
+        return found == sets;
+    }
+
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 3) {
+            System.out.println("Usage: java PuzzleGenerator file puzzles sets [disjoint] [seed]");
+            return;
+        }
+
+        int puzzles = Integer.parseInt(args[1]);
+        PuzzleGenerator generator = new PuzzleGenerator(Integer.parseInt(args[2]),
+                args.length > 3 && Boolean.parseBoolean(args[3]));
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        long start = System.nanoTime();
+        long[] seeds = generator.generate(puzzles, seed);
+        long generated = System.nanoTime();
+
+        PuzzleStore.write(Paths.get(args[0]), generator, seeds);
+
+        System.out.printf("%d puzzles with %d%s SETs in %.1f ms, written to %s%n", seeds.length, generator.getSets(),
+                generator.isDisjoint() ? " disjoint" : "", (generated - start) / 1e6, args[0]);
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * PuzzleStore.java
+ *
+ * On-disk store of the puzzles of a PuzzleGenerator. Every puzzle is a fixed-size record, so the file is memory-mapped
+ * and puzzle i is read at HEADER_SIZE + i * RECORD_SIZE without reading the ones before it: loading the daily puzzle is
+ * one Board dealt from the seed in its record. The cards of the record are checked against the Board, so a store
+ * written with another Deck shuffle is caught instead of dealing the wrong puzzle.
+ *
+ * Layout (big-endian):
+ *   int   MAGIC
+ *   byte  FORMAT
+ *   byte  number of SETs of every puzzle
+ *   byte  1 if the SETs of a puzzle share no cards, else 0
+ *   byte  number of cards on a board
+ *   int   number of puzzles
+ *   then one record per puzzle: long seed of the Board, then the ids of its cards, one byte each, in dealing order
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+
+public final class PuzzleStore {
+
+    static final int MAGIC = 0x53455450;    // "SETP"
+    static final byte FORMAT = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 4;
+    private static final int BOARD_SIZE = 12;
+    private static final int RECORD_SIZE = 8 + BOARD_SIZE;
+
+    private final MappedByteBuffer buffer;  // Only read with absolute gets, so it can be shared by threads.
+    private final int sets;
+    private final boolean disjoint;
+    private final int puzzles;
+
+
+    private PuzzleStore(MappedByteBuffer buffer) {
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.get(4) != FORMAT
+                || buffer.get(7) != BOARD_SIZE) {
+            throw new IllegalArgumentException("Not a puzzle store");
+        }
+
+        this.buffer = buffer;
+        sets = buffer.get(5);
+        disjoint = buffer.get(6) != 0;
+        puzzles = buffer.getInt(8);
+
+        if (buffer.capacity() != HEADER_SIZE + (long) puzzles * RECORD_SIZE) {
+            throw new IllegalArgumentException("Puzzle store has the wrong length");
+        }
+    }
+
+
+    /**
+     * This method writes puzzles to a new store, replacing the file if it exists.
+     *
+     * @param path      the file to write.
+     * @param generator the generator of the puzzles.
+     * @param seeds     the seeds of the puzzles, see PuzzleGenerator.generate().
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, PuzzleGenerator generator, long[] seeds) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + seeds.length * RECORD_SIZE);
+
+        buffer.putInt(MAGIC);
+        buffer.put(FORMAT);
+        buffer.put((byte) generator.getSets());
+        buffer.put((byte) (generator.isDisjoint() ? 1 : 0));
+        buffer.put((byte) BOARD_SIZE);
+        buffer.putInt(seeds.length);
+
+        for (long seed : seeds) {
+            buffer.putLong(seed);
+            for (int card : new Board(seed).getCurrentBoard()) {
+                buffer.put((byte) card);
+            }
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+
+    /**
+     * This method maps a store into memory. The mapping stays valid after the file is closed, so the store needs no
+     * closing.
+     *
+     * @param path the file of the store.
+     * @return the store.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not a puzzle store.
+     */
+    public static PuzzleStore open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new PuzzleStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+
+    /**
+     * This method deals a puzzle.
+     *
+     * @param index the index of the puzzle, from 0.
+     * @return a new Board holding the puzzle.
+     * @throws IllegalStateException if the Board dealt from the seed is not the one stored.
+     */
+    public Board load(int index) {
+
+        Board board = new Board(getSeed(index));
+
+        if (!Arrays.equals(board.getCurrentBoard(), getCards(index))) {
+            throw new IllegalStateException("Puzzle " + index + " was stored with another Deck shuffle");
+        }
+
+        return board;
+    }
+
+
+    /**
+     * This method deals the puzzle of the day, going through the store one puzzle a day.
+     *
+     * @param date the day of the puzzle.
+     * @return a new Board holding the puzzle.
+     * @throws IllegalStateException if the store holds no puzzle.
+     */
+    public Board daily(LocalDate date) {
+
+        if (puzzles == 0) {
+            throw new IllegalStateException("The puzzle store is empty");
+        }
+
+        return load((int) Math.floorMod(date.toEpochDay(), (long) puzzles));
+    }
+
+
+    /**
+     * Gets the seed of the Board of a puzzle
+     *
+     * @param index the index of the puzzle, from 0
+     * @return the seed new Board(seed) deals the puzzle from
+     */
+    public long getSeed(int index) {
+        return buffer.getLong(offset(index));
+    }
+
+    /**
+     * Gets the cards of a puzzle
+     *
+     * @param index the index of the puzzle, from 0
+     * @return the ids of the cards on the board, in dealing order
+     */
+    public int[] getCards(int index) {
+
+        int offset = offset(index) + 8;
+        int[] cards = new int[BOARD_SIZE];
+        for (int card = 0; card < BOARD_SIZE; card++) {
+            cards[card] = buffer.get(offset + card);
+        }
+        return cards;
+    }
+
+    /**
+     * Gets the number of puzzles in the store
+     *
+     * @return the number of puzzles
+     */
+    public int size() {
+        return puzzles;
+    }
+
+    /**
+     * Gets the number of SETs of every puzzle
+     *
+     * @return the SETs on each board
+     */
+    public int getSets() {
+        return sets;
+    }
+
+    /**
+     * Gets whether the SETs of a puzzle share no cards
+     *
+     * @return true if no two SETs of a puzzle share a card
+     */
+    public boolean isDisjoint() {
+        return disjoint;
+    }
+
+
+    /*
+     * Private helper method that returns the offset of the record of a puzzle.
+     */
+    private int offset(int index) {
+        if (index < 0 || index >= puzzles) {
+            throw new IndexOutOfBoundsException("Puzzle " + index + " of " + puzzles);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+}
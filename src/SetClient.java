@@ -0,0 +1,262 @@
+/**
+ * SetClient.java
+ *
+ * Blocking client for SetServer. It is used to drive the server from local loopback connections: main() starts a
+ * server on a free port and has a number of bot players claim every SET they see until their tables are over.
+ *
+ * Usage: java SetClient [players] [players per table]
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class SetClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(SetServer.MAX_FRAME);
+    private final ByteBuffer out = ByteBuffer.allocate(SetServer.MAX_FRAME);
+
+    private int[] board = new int[0];   // Card ids of the last STATE received.
+    private int cardsLeft;              // Cards left in the deck in the last STATE, or at the end of the game.
+    private long statesReceived;        // Number of STATE and GAME_OVER messages read so far.
+    private boolean gameOver;
+
+
+    /**
+     * Constructor for a SetClient. It connects to a SetServer.
+     *
+     * @param host the host of the server.
+     * @param port the port of the server.
+     * @throws IOException if the server cannot be reached.
+     */
+    public SetClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+    }
+
+
+    /**
+     * This method joins a table and waits for its state.
+     *
+     * @param table the id of the table to join.
+     */
+    public void join(int table) throws IOException {
+        out.clear();
+        out.putShort((short) 5).put(SetServer.JOIN).putInt(table).flip();
+        write();
+        read();
+    }
+
+
+    /**
+     * This method claims three cards and waits for the result. The state of the table that follows an accepted claim
+     * is read by the next call to read().
+     *
+     * @return SetServer.RESULT_OK or the reason the claim was rejected.
+     */
+    public byte claim(int card1, int card2, int card3) throws IOException {
+        out.clear();
+        out.putShort((short) 4).put(SetServer.CLAIM).put((byte) card1).put((byte) card2).put((byte) card3).flip();
+        write();
+        return readResult();
+    }
+
+
+    /**
+     * This method asks for three more cards and waits for the result.
+     *
+     * @return SetServer.RESULT_OK or SetServer.REJECTED_NOT_ALLOWED.
+     */
+    public byte addThree() throws IOException {
+        out.clear();
+        out.putShort((short) 1).put(SetServer.ADD_THREE).flip();
+        write();
+        return readResult();
+    }
+
+
+    /**
+     * This method reads the next message from the server.
+     *
+     * @return the opcode of the message.
+     */
+    public byte read() throws IOException {
+
+        readFully(2);
+        readFully(in.getShort(0) & 0xFFFF);
+        byte opcode = in.get(0);
+
+        if (opcode == SetServer.STATE || opcode == SetServer.GAME_OVER) {
+            statesReceived++;
+        }
+
+        if (opcode == SetServer.STATE) {
+            cardsLeft = in.get(5);
+            board = new int[in.get(6)];
+            for (int index = 0; index < board.length; index++) {
+                board[index] = in.get(7 + index);
+            }
+        } else if (opcode == SetServer.GAME_OVER) {
+            cardsLeft = in.get(1);
+            gameOver = true;
+        }
+
+        return opcode;
+    }
+
+
+    /**
+     * Gets the cards on the board in the last state received
+     *
+     * @return the card ids on the board
+     */
+    public int[] getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the cards left in the deck in the last state received, or on the board and in the deck once the game is over
+     *
+     * @return the number of cards left
+     */
+    public int getCardsLeft() {
+        return cardsLeft;
+    }
+
+    /**
+     * Gets the number of table states received so far, to tell whether a newer state arrived
+     *
+     * @return the number of STATE and GAME_OVER messages read
+     */
+    public long getStatesReceived() {
+        return statesReceived;
+    }
+
+    /**
+     * Gets whether the server reported the end of the game
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+
+    /*
+     * Private helper method that reads messages until the RESULT of a request. Every state received on the way is
+     * kept.
+     */
+    private byte readResult() throws IOException {
+        while (read() != SetServer.RESULT) {
+            if (gameOver) {
+                return SetServer.REJECTED_NOT_ALLOWED;
+            }
+        }
+        return in.get(1);
+    }
+
+    private void readFully(int bytes) throws IOException {
+        in.clear().limit(bytes);
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void write() throws IOException {
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+
+    /*
+     * Private helper method for the bots in main(): returns a SET on the board, or null.
+     */
+    private static int[] findSet(int[] board) {
+        for (int index = 0; index < board.length; index++) {
+            for (int index1 = index + 1; index1 < board.length; index1++) {
+                int third = Cards.third(board[index], board[index1]);
+                for (int index2 = index1 + 1; index2 < board.length; index2++) {
+                    if (board[index2] == third) {
+                        return new int[]{board[index], board[index1], third};
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int playersPerTable = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        SetServer server = new SetServer(0);
+        Thread acceptor = new Thread(server, "SetServer");
+        acceptor.start();
+
+        AtomicLong claims = new AtomicLong();
+        AtomicLong claimNanos = new AtomicLong();
+        ArrayList<Thread> bots = new ArrayList<>();
+
+        long start = System.nanoTime();
+
+        for (int player = 0; player < players; player++) {
+            int table = player / playersPerTable;
+            Thread bot = new Thread(() -> {
+                try (SetClient client = new SetClient("localhost", server.getPort())) {
+                    client.join(table);
+                    while (!client.isGameOver()) {
+                        int[] set = findSet(client.getBoard());
+                        long statesBefore = client.getStatesReceived();
+                        long claimStart = System.nanoTime();
+                        byte result = set != null ? client.claim(set[0], set[1], set[2]) : client.addThree();
+                        if (set != null) {
+                            claims.incrementAndGet();
+                            claimNanos.addAndGet(System.nanoTime() - claimStart);
+                        }
+                        // An accepted request is followed by the new state of the table. A rejected one means another
+                        // player changed the table first, so wait for that state unless it already arrived.
+                        boolean stateBehind = result == SetServer.RESULT_OK
+                                || client.getStatesReceived() == statesBefore;
+                        if (stateBehind && !client.isGameOver()) {
+                            client.read();
+                        }
+                    }
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            bots.add(bot);
+            bot.start();
+        }
+
+        for (Thread bot : bots) {
+            bot.join();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d players on %d tables: %d claims in %.2f s, mean claim latency %.3f ms%n", players,
+                (players + playersPerTable - 1) / playersPerTable, claims.get(), seconds,
+                claimNanos.get() / 1e6 / Math.max(1, claims.get()));
+
+        server.close();
+    }
+}
@@ -0,0 +1,438 @@
+/**
+ * SetServer.java
+ *
+ * Hosts many SET tables in one JVM. Every table is a Board played with the solitaire rules of
+ * PlayingBoard.restoreBoard(), shared by the players that join it. Players connect over TCP and are served by two
+ * threads per session doing blocking NIO, so a session reads like straight-line code: one reads and handles the
+ * messages of the player, the other writes the frames queued for it. Tables are independent: a claim only locks its
+ * own table, and the lock is never held while writing to a socket, so a slow player only holds up its own frames. A
+ * player too slow to keep up with its queue is dropped. A table is removed when its last player leaves.
+ *
+ * Protocol: every message is a frame of an unsigned short length, followed by that many bytes: an opcode byte and its
+ * payload. All numbers are big-endian and card ids are single bytes (see Cards.java). A frame whose length does not
+ * match its opcode is a protocol error and ends the session.
+ *
+ *   client to server
+ *     JOIN       int table id
+ *     CLAIM      three card ids
+ *     ADD_THREE  (no payload)
+ *   server to client
+ *     STATE      int table id, byte cards left in the deck, byte board size, then the card ids on the board
+ *     RESULT     byte result of the last CLAIM or ADD_THREE (RESULT_OK or one of the REJECTED_ reasons)
+ *     GAME_OVER  byte cards left on the board and in the deck
+ *
+ * After JOIN, and after every accepted CLAIM or ADD_THREE on a table, every player at the table receives its STATE.
+ *
+ * Usage: java SetServer [port]
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+
+public class SetServer implements Runnable {
+
+    public static final int DEFAULT_PORT = 4133;
+
+    // Opcodes.
+    public static final byte JOIN = 1;
+    public static final byte CLAIM = 2;
+    public static final byte ADD_THREE = 3;
+    public static final byte STATE = 10;
+    public static final byte RESULT = 11;
+    public static final byte GAME_OVER = 12;
+
+    // Results.
+    public static final byte RESULT_OK = 0;
+    public static final byte REJECTED_COUNT = 1;
+    public static final byte REJECTED_COLOR = 2;
+    public static final byte REJECTED_SHADING = 3;
+    public static final byte REJECTED_SHAPE = 4;
+    public static final byte REJECTED_NOT_ON_BOARD = 5;     // A card was already claimed, never dealt, or repeated.
+    public static final byte REJECTED_NOT_ALLOWED = 6;      // ADD_THREE on a board that is full or with an empty deck.
+    public static final byte REJECTED_NO_TABLE = 7;         // CLAIM or ADD_THREE before JOIN.
+
+    static final int MAX_FRAME = 2 + 1 + 4 + 2 + Cards.DECK_SIZE;   // Largest frame: a STATE with every card.
+    static final int MAX_QUEUED_FRAMES = 64;    // Frames waiting for a player before it is dropped as too slow.
+
+    private static final ByteBuffer END_OF_SESSION = ByteBuffer.allocate(0);    // Stops the writer of a session.
+
+    private final ServerSocketChannel serverChannel;
+    // One thread per session. On Java 21 and later this can be Executors.newVirtualThreadPerTaskExecutor().
+    private final ExecutorService sessions = Executors.newCachedThreadPool();
+    private final ConcurrentHashMap<Integer, Table> tables = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor for a SetServer. It binds the server to the given port; run() then accepts players.
+     *
+     * @param port the port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public SetServer(int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+    }
+
+
+    /**
+     * This method returns the port the server is listening on.
+     *
+     * @return the local port of the server.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+
+    /**
+     * Accepts players until the server is closed, starting a session thread for each one.
+     */
+    @Override
+    public void run() {
+        try {
+            while (serverChannel.isOpen()) {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                sessions.execute(new Session(channel));
+            }
+        } catch (final IOException e) {
+            if (serverChannel.isOpen()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+
+    /**
+     * This method stops accepting players and ends every session.
+     */
+    public void close() throws IOException {
+        serverChannel.close();
+        sessions.shutdownNow();
+        for (Table table : tables.values()) {
+            for (Session session : table.players) {
+                session.close();
+            }
+        }
+    }
+
+
+    /*
+     * A table of SET: one Board and the sessions playing on it. Every method that touches the Board holds the lock of
+     * the table.
+     */
+    private static class Table {
+
+        private final int id;
+        private final Board board = new Board(new Deck(), null, EngineMetrics.get());
+        private final CopyOnWriteArrayList<Session> players = new CopyOnWriteArrayList<>();
+
+        Table(int id) {
+            this.id = id;
+        }
+
+        /*
+         * Claims three cards for a player. A valid SET is removed and, like PlayingBoard.restoreBoard(), replaced
+         * from the deck if the board drops below 12 cards.
+         */
+        synchronized byte claim(int card1, int card2, int card3) {
+
+            if (card1 == card2 || card1 == card3 || card2 == card3
+                    || !isOnBoard(card1) || !isOnBoard(card2) || !isOnBoard(card3)) {
+                return REJECTED_NOT_ON_BOARD;
+            }
+
+            SetVerdict verdict = board.checkForSet(card1, card2, card3);
+            if (!verdict.isSet()) {
+                return result(verdict);
+            }
+
+            board.removeFromCurrentBoard(card1);
+            board.removeFromCurrentBoard(card2);
+            board.removeFromCurrentBoard(card3);
+
+            board.refill();
+
+            return RESULT_OK;
+        }
+
+        /*
+         * Returns the result sent for a rejected claim. The wire codes are mapped here, not taken from
+         * SetVerdict.getCode(), so renumbering the verdicts cannot change the protocol.
+         */
+        private static byte result(SetVerdict verdict) {
+            switch (verdict) {
+                case COUNT:
+                    return REJECTED_COUNT;
+                case COLOR:
+                    return REJECTED_COLOR;
+                case SHADING:
+                    return REJECTED_SHADING;
+                case SHAPE:
+                    return REJECTED_SHAPE;
+                case SAME_CARD:
+                    return REJECTED_NOT_ON_BOARD;
+                default:
+                    throw new IllegalArgumentException("Not a rejection: " + verdict);
+            }
+        }
+
+        private boolean isOnBoard(int card) {
+            return card >= 0 && card < Cards.DECK_SIZE && board.contains(card);
+        }
+
+        /*
+         * Deals three more cards if Board.addThreeMoreCards() allows it.
+         */
+        synchronized byte addThree() {
+            if (board.getCurrentDeck().isEmpty() || board.addThreeMoreCards() == null) {
+                return REJECTED_NOT_ALLOWED;
+            }
+            return RESULT_OK;
+        }
+
+        /*
+         * Writes the STATE of the table, or GAME_OVER if there is no SET left and no way to deal more cards. Called
+         * with the lock of the table held.
+         */
+        private void writeState(ByteBuffer frame) {
+
+            frame.clear();
+            Deck deck = board.getCurrentDeck();
+            boolean stuck = !board.hasAnySet() && (deck.isEmpty() || board.getBoardSize() > 12);
+
+            if (stuck) {
+                frame.putShort((short) 2).put(GAME_OVER).put((byte) (board.getBoardSize() + deck.getCardsLeft()));
+            } else {
+                int size = board.getBoardSize();
+                frame.putShort((short) (1 + 4 + 2 + size)).put(STATE).putInt(id);
+                frame.put((byte) deck.getCardsLeft()).put((byte) size);
+                for (int card : board.getCurrentBoard()) {
+                    frame.put((byte) card);
+                }
+            }
+
+            frame.flip();
+        }
+
+        /*
+         * Seats a player at the table and queues the state of the table for it, in one step under the lock of the
+         * table, so no broadcast can come between the join and the first state the player receives.
+         */
+        synchronized void join(Session player) {
+            players.add(player);
+            ByteBuffer frame = ByteBuffer.allocate(MAX_FRAME);
+            writeState(frame);
+            player.send(frame);
+        }
+
+        /*
+         * Removes a player from the table, returning true if the table has no players left.
+         */
+        synchronized boolean leave(Session player) {
+            players.remove(player);
+            return players.isEmpty();
+        }
+
+        /*
+         * Queues the state of the table for every player at it. Queueing under the lock of the table keeps every
+         * player receiving the states in the order the table went through them; the writes happen on the writer
+         * threads of the sessions, outside the lock.
+         */
+        synchronized void broadcast() {
+            ByteBuffer frame = ByteBuffer.allocate(MAX_FRAME);
+            writeState(frame);
+            for (Session player : players) {
+                player.send(frame.duplicate());
+            }
+        }
+    }
+
+
+    /*
+     * One connected player. The session thread runs the read loop; frames for the player, from this thread and from
+     * broadcasts of other players at the same table, are queued in the outbox and written by the writer thread.
+     */
+    private class Session implements Runnable {
+
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(MAX_FRAME);
+        private final LinkedBlockingQueue<ByteBuffer> outbox = new LinkedBlockingQueue<>(MAX_QUEUED_FRAMES);
+        private Table table;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            sessions.execute(this::writeLoop);
+            try {
+                while (true) {
+                    readFully(2);
+                    int length = in.getShort(0) & 0xFFFF;
+                    if (length == 0 || length > MAX_FRAME - 2) {
+                        throw new IOException("Bad frame length " + length);
+                    }
+                    readFully(length);
+                    handle(in.get(0));
+                }
+            } catch (final IOException e) {
+                // The player disconnected or sent a bad frame: drop the session.
+            } finally {
+                leaveTable();
+                close();
+            }
+        }
+
+        /*
+         * Writes the queued frames until the session ends.
+         */
+        private void writeLoop() {
+            try {
+                ByteBuffer frame;
+                while ((frame = outbox.take()) != END_OF_SESSION) {
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                }
+            } catch (final IOException | InterruptedException e) {
+                // The player disconnected or the server is closing.
+            } finally {
+                close();
+            }
+        }
+
+        /*
+         * Leaves the current table, removing the table if this was its last player. Joins and leaves of a table are
+         * atomic in the map, so a player never joins a table that was just removed. The lock of the map entry is
+         * always taken before the lock of the table, never the other way round.
+         */
+        private void leaveTable() {
+            if (table != null) {
+                tables.computeIfPresent(table.id, (id, current) -> current.leave(this) ? null : current);
+                table = null;
+            }
+        }
+
+        /*
+         * Handles one message held in the in buffer.
+         */
+        private void handle(byte opcode) throws IOException {
+
+            int length = in.limit();
+
+            switch (opcode) {
+                case JOIN:
+                    checkLength(opcode, length, 1 + 4);
+                    leaveTable();
+                    table = tables.compute(in.getInt(1), (id, current) -> {
+                        Table joined = current != null ? current : new Table(id);
+                        joined.join(this);
+                        return joined;
+                    });
+                    break;
+
+                case CLAIM:
+                    checkLength(opcode, length, 1 + 3);
+                    if (table == null) {
+                        sendResult(REJECTED_NO_TABLE);
+                        break;
+                    }
+                    byte claim = table.claim(in.get(1), in.get(2), in.get(3));
+                    sendResult(claim);
+                    if (claim == RESULT_OK) {
+                        table.broadcast();
+                    }
+                    break;
+
+                case ADD_THREE:
+                    checkLength(opcode, length, 1);
+                    if (table == null) {
+                        sendResult(REJECTED_NO_TABLE);
+                        break;
+                    }
+                    byte added = table.addThree();
+                    sendResult(added);
+                    if (added == RESULT_OK) {
+                        table.broadcast();
+                    }
+                    break;
+
+                default:
+                    throw new IOException("Unknown opcode " + opcode);
+            }
+        }
+
+        /*
+         * Rejects a frame that is not the length of its opcode as a protocol error.
+         */
+        private void checkLength(byte opcode, int length, int expected) throws IOException {
+            if (length != expected) {
+                throw new IOException("Bad frame length " + length + " for opcode " + opcode);
+            }
+        }
+
+        /*
+         * Reads exactly the given number of bytes into the start of the in buffer.
+         */
+        private void readFully(int bytes) throws IOException {
+            in.clear().limit(bytes);
+            while (in.hasRemaining()) {
+                if (channel.read(in) < 0) {
+                    throw new EOFException();
+                }
+            }
+        }
+
+        private void sendResult(byte result) {
+            ByteBuffer frame = ByteBuffer.allocate(4);
+            frame.putShort((short) 2).put(RESULT).put(result).flip();
+            send(frame);
+        }
+
+        /*
+         * Queues a frame for the writer without blocking, dropping the player if too many frames are waiting.
+         */
+        void send(ByteBuffer frame) {
+            if (!outbox.offer(frame)) {
+                close();
+            }
+        }
+
+        /*
+         * Closes the connection and stops the writer. Safe to call more than once and from any thread.
+         */
+        void close() {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+            outbox.clear();
+            outbox.offer(END_OF_SESSION);
+        }
+    }
+
+
+    public static void main(String[] args) throws IOException {
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        SetServer server = new SetServer(port);
+        System.out.println("SET server listening on port " + server.getPort());
+        server.run();
+    }
+}
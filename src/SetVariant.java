@@ -0,0 +1,306 @@
+/**
+ * SetVariant.java
+ *
+ * Rules engine for SET decks with any number of attributes, each with three values. A card is an int from 0 to
+ * 3^attributes - 1 holding one base-3 digit per attribute, like the ids of Cards.java (which is the 4-attribute,
+ * 81-card variant with its tables precomputed). Three cards are a SET when every digit adds up to a multiple of three,
+ * so the third card of any pair is computed four digits at a time from the table of Cards.java, and findSets() only
+ * has to look at the pairs of a board: O(n^2) instead of O(n^3), which is what makes boards of 30+ cards from a
+ * 243-card deck practical. The cards of a board are indexed in a hash table the size of the board, never of the deck,
+ * so a search costs the same with 19 attributes as with 5.
+ *
+ * Usage: java SetVariant [attributes] [board size] [boards]    (deals random boards and reports their SETs)
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+
+public final class SetVariant {
+
+    public static final int MAX_ATTRIBUTES = 19;    // 3^19 still fits in an int, 3^20 does not.
+
+    private final int attributes;   // Number of base-3 digits of a card.
+    private final int deckSize;     // 3^attributes.
+
+
+    /**
+     * Constructor for a SetVariant.
+     *
+     * @param attributes the number of attributes of a card, from 1 to MAX_ATTRIBUTES.
+     * @throws IllegalArgumentException if the number of attributes is out of range.
+     */
+    public SetVariant(int attributes) {
+
+        if (attributes < 1 || attributes > MAX_ATTRIBUTES) {
+            throw new IllegalArgumentException("A SET variant has 1 to " + MAX_ATTRIBUTES + " attributes, not "
+                    + attributes);
+        }
+
+        this.attributes = attributes;
+
+        int size = 1;
+        for (int index = 0; index < attributes; index++) {
+            size *= 3;
+        }
+        deckSize = size;
+    }
+
+
+    /**
+     * Gets the number of attributes of a card
+     *
+     * @return the number of attributes
+     */
+    public int getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Gets the number of cards in a deck of this variant
+     *
+     * @return 3 to the number of attributes
+     */
+    public int getDeckSize() {
+        return deckSize;
+    }
+
+
+    /**
+     * This method returns the value of one attribute of a card.
+     *
+     * @param card      the id of the card.
+     * @param attribute the attribute, 0 being the least significant digit.
+     * @return the value of the attribute, from 0 to 2.
+     */
+    public int attribute(int card, int attribute) {
+        for (int index = 0; index < attribute; index++) {
+            card /= 3;
+        }
+        return card % 3;
+    }
+
+
+    /**
+     * This method returns the only card that completes a SET with two given cards. Every digit of the third card is
+     * the one that brings the sum of the three digits to a multiple of three. Digits above the attributes of the
+     * variant are zero in both cards, so they stay zero in the third one.
+     *
+     * @param card1 the id of a card.
+     * @param card2 the id of another card.
+     * @return the id of the third card.
+     */
+    public int third(int card1, int card2) {
+
+        // Four digits at a time: the low four digits of the cards are a card of the standard deck, whose third card
+        // Cards.third() looks up.
+        int third = 0;
+        int digit = 1;
+        for (int attribute = 0; attribute < attributes; attribute += 4, digit *= Cards.DECK_SIZE) {
+            third += Cards.third(card1 % Cards.DECK_SIZE, card2 % Cards.DECK_SIZE) * digit;
+            card1 /= Cards.DECK_SIZE;
+            card2 /= Cards.DECK_SIZE;
+        }
+        return third;
+    }
+
+
+    /**
+     * This method returns true if three cards are a SET.
+     *
+     * @return true if the cards are different and every attribute is all the same or all different.
+     */
+    public boolean isSet(int card1, int card2, int card3) {
+        return card1 != card2 && third(card1, card2) == card3;
+    }
+
+
+    /**
+     * This method returns a shuffled deck of this variant. Two decks with the same seed are in the same order. The deck
+     * holds 3^attributes ints; with many attributes, deal boards with randomBoard() instead.
+     *
+     * @param seed the seed of the shuffle.
+     * @return the ids of all the cards, in the order they are dealt.
+     */
+    public int[] shuffledDeck(long seed) {
+
+        int[] cards = new int[deckSize];
+        for (int card = 0; card < deckSize; card++) {
+            cards[card] = card;
+        }
+
+        // Fisher-Yates shuffle, as in Deck.shuffe().
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int index = cards.length - 1; index > 0; index--) {
+            int swap = random.nextInt(index + 1);
+            int card = cards[index];
+            cards[index] = cards[swap];
+            cards[swap] = card;
+        }
+
+        return cards;
+    }
+
+
+    /**
+     * This method deals a board of different cards drawn at random, without building the deck. Two boards with the
+     * same seed hold the same cards.
+     *
+     * @param size the number of cards on the board, at most the size of the deck.
+     * @param seed the seed of the draw.
+     * @return the ids of the cards on the board.
+     */
+    public int[] randomBoard(int size, long seed) {
+
+        // Floyd's sampling: size draws, each one a new card.
+        SplittableRandom random = new SplittableRandom(seed);
+        HashSet<Integer> drawn = new HashSet<>();
+        int[] board = new int[size];
+
+        for (int card = deckSize - size; card < deckSize; card++) {
+            int draw = random.nextInt(card + 1);
+            if (!drawn.add(draw)) {
+                draw = card;
+                drawn.add(draw);
+            }
+            board[card - (deckSize - size)] = draw;
+        }
+
+        return board;
+    }
+
+
+    /**
+     * This method finds every SET on a board. Each pair of cards is completed to its third card, which is looked up
+     * by id; a SET is kept once, from its first two cards in board order.
+     *
+     * @param board the ids of the cards on the board, all different.
+     * @return the SETs on the board, three card ids each, in board order.
+     */
+    public ArrayList<int[]> findSets(int[] board) {
+
+        ArrayList<int[]> sets = new ArrayList<>();
+        Positions position = new Positions(board);
+
+        for (int index1 = 0; index1 < board.length; index1++) {
+            for (int index2 = index1 + 1; index2 < board.length; index2++) {
+                int third = third(board[index1], board[index2]);
+                if (position.of(third) > index2) {
+                    sets.add(new int[]{board[index1], board[index2], third});
+                }
+            }
+        }
+
+        return sets;
+    }
+
+
+    /**
+     * This method counts the SETs on a board without building them.
+     *
+     * @param board the ids of the cards on the board, all different.
+     * @return the number of SETs on the board.
+     */
+    public int countSets(int[] board) {
+
+        int sets = 0;
+        Positions position = new Positions(board);
+
+        for (int index1 = 0; index1 < board.length; index1++) {
+            for (int index2 = index1 + 1; index2 < board.length; index2++) {
+                if (position.of(third(board[index1], board[index2])) > index2) {
+                    sets++;
+                }
+            }
+        }
+
+        return sets;
+    }
+
+
+    /*
+     * Index of the cards of a board by id: an open-addressing hash table with at least twice as many slots as cards,
+     * probed linearly.
+     */
+    private static final class Positions {
+
+        private final int[] cards;      // Card id + 1 in every used slot, 0 in the empty ones.
+        private final int[] indexes;    // Index on the board of the card in the same slot.
+        private final int mask;
+
+        Positions(int[] board) {
+
+            int slots = Integer.highestOneBit(board.length * 2 + 1) << 1;
+            cards = new int[slots];
+            indexes = new int[slots];
+            mask = slots - 1;
+
+            for (int index = 0; index < board.length; index++) {
+                int slot = slot(board[index]);
+                while (cards[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                cards[slot] = board[index] + 1;
+                indexes[slot] = index;
+            }
+        }
+
+        /*
+         * Returns the index of a card on the board, or -1.
+         */
+        int of(int card) {
+            for (int slot = slot(card); cards[slot] != 0; slot = (slot + 1) & mask) {
+                if (cards[slot] == card + 1) {
+                    return indexes[slot];
+                }
+            }
+            return -1;
+        }
+
+        private int slot(int card) {
+            int hash = card * 0x9E3779B9;
+            return (hash ^ hash >>> 16) & mask;
+        }
+    }
+
+
+    /**
+     * This method returns a String representation of a card, one digit per attribute from the most significant.
+     *
+     * @param card the id of the card.
+     * @return the digits of the card.
+     */
+    public String toString(int card) {
+        StringBuilder digits = new StringBuilder();
+        for (int attribute = attributes - 1; attribute >= 0; attribute--) {
+            digits.append(attribute(card, attribute));
+        }
+        return digits.toString();
+    }
+
+
+    public static void main(String[] args) {
+
+        int attributes = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int boards = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+
+        SetVariant variant = new SetVariant(attributes);
+        int boardSize = Math.min(args.length > 1 ? Integer.parseInt(args[1]) : 30, variant.getDeckSize());
+        SplittableRandom random = new SplittableRandom(1);
+        long sets = 0;
+        long nanos = 0;
+
+        for (int index = 0; index < boards; index++) {
+            int[] board = variant.randomBoard(boardSize, random.nextLong());
+            long start = System.nanoTime();
+            sets += variant.countSets(board);
+            nanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("%d attributes, %d cards: %.3f SETs per board of %d, %.0f ns per board%n", attributes,
+                variant.getDeckSize(), (double) sets / boards, boardSize, (double) nanos / boards);
+    }
+}
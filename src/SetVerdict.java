@@ -0,0 +1,70 @@
+/**
+ * SetVerdict.java
+ *
+ * Verdict of the rules engine on three cards: either they are a SET, or the first attribute that breaks the SET rules,
+ * checked in the order count, color, shading and shape. Verdicts are shared constants, so checking a claim never
+ * allocates; the message is for the Swing layer to show, and the code is what goes in event logs.
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+public enum SetVerdict {
+
+    SET(0, "This is a SET"),
+    COUNT(1, "Not the same count"),
+    COLOR(2, "Not the same color"),
+    SHADING(3, "Not the same shading"),
+    SHAPE(4, "Not the same shape"),
+    SAME_CARD(5, "Not three different cards");
+
+    private static final SetVerdict[] BY_CODE = values();
+
+    private final byte code;
+    private final String message;
+
+
+    SetVerdict(int code, String message) {
+        this.code = (byte) code;
+        this.message = message;
+    }
+
+
+    /**
+     * Gets the code of the verdict, 0 for a SET. GameEventLog stores it as the reason of a REJECT; SetServer maps the
+     * verdicts to its own result codes.
+     *
+     * @return the code of the verdict
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Gets the text that explains the verdict to a player
+     *
+     * @return the message of the verdict
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets whether the cards are a SET
+     *
+     * @return true if this is the SET verdict
+     */
+    public boolean isSet() {
+        return this == SET;
+    }
+
+
+    /**
+     * This method returns the verdict with the given code.
+     *
+     * @param code the code of a verdict.
+     * @return the verdict, or null if no verdict has that code.
+     */
+    public static SetVerdict ofCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * SolitaireSimulator.java
+ *
+ * Headless batch engine that plays complete solitaire games with the same rules as PlayingBoard.restoreBoard() and
+ * Board.addThreeMoreCards(), always claiming the first SET available. Games are spread across all cores with
+ * fork/join, and every task deals from its own SplittableRandom stream, so a run is reproducible from its seed no
+ * matter how the work is scheduled.
+ *
+ * Usage: java SolitaireSimulator [games] [seed]
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+public class SolitaireSimulator {
+
+    private static final int GAMES_PER_TASK = 1024;     // Below this many games a task stops splitting.
+
+
+    /**
+     * Plays the given number of games in parallel and returns their aggregate statistics.
+     *
+     * @param games the number of games to play.
+     * @param seed  the seed of the random stream the decks are drawn from.
+     * @return the statistics of all the games.
+     */
+    public static Stats simulate(int games, long seed) {
+        return ForkJoinPool.commonPool().invoke(new SimulationTask(new SplittableRandom(seed), games));
+    }
+
+
+    /**
+     * Plays a solitaire game to the end. Whenever the board has a SET the first one is claimed and, if the board drops
+     * below 12 cards, three cards are dealt. A board without SETs gets three more cards when Board.addThreeMoreCards()
+     * allows it; otherwise the game is over.
+     *
+     * @param board the Board to play on.
+     * @param stats the statistics to record the game in, or null.
+     * @return the number of cards left on the board and in the deck at the end of the game.
+     */
+    public static int playGame(Board board, Stats stats) {
+
+        Deck deck = board.getCurrentDeck();
+
+        while (true) {
+
+            int sets = board.countSets();
+            if (stats != null) {
+                stats.setsPerBoard[Math.min(sets, Stats.MAX_SETS)]++;
+            }
+
+            if (sets > 0) {
+
+                int[] set = board.getSetsAvailable().get(0);
+                for (int card : set) {
+                    board.removeFromCurrentBoard(card);
+                }
+
+                board.refill();
+
+            } else if (deck.isEmpty() || board.addThreeMoreCards() == null) {
+
+                int cardsLeft = board.getBoardSize() + deck.getCardsLeft();
+                if (stats != null) {
+                    stats.games++;
+                    stats.cardsLeft[cardsLeft]++;
+                }
+                return cardsLeft;
+
+            } else if (stats != null) {
+                stats.addThrees++;
+            }
+        }
+    }
+
+
+    /**
+     * Aggregate statistics of a batch of games.
+     */
+    public static class Stats {
+
+        static final int MAX_SETS = 32;     // Boards with more SETs than this are counted as MAX_SETS.
+
+        long games;                                     // Games played.
+        long addThrees;                                 // Times "Add Three" was needed.
+        long gamesWithAddThree;                         // Games that needed "Add Three" at least once.
+        long[] cardsLeft = new long[Cards.DECK_SIZE + 1]; // Games by number of cards left at the end.
+        long[] setsPerBoard = new long[MAX_SETS + 1];   // Boards seen by number of SETs on them.
+
+
+        /**
+         * This method adds the statistics of another batch to this one.
+         *
+         * @param other the statistics to add.
+         */
+        public void merge(Stats other) {
+            games += other.games;
+            addThrees += other.addThrees;
+            gamesWithAddThree += other.gamesWithAddThree;
+            for (int index = 0; index < cardsLeft.length; index++) {
+                cardsLeft[index] += other.cardsLeft[index];
+            }
+            for (int index = 0; index < setsPerBoard.length; index++) {
+                setsPerBoard[index] += other.setsPerBoard[index];
+            }
+        }
+
+
+        /**
+         * Gets the number of games played
+         *
+         * @return the number of games played
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the number of times "Add Three" was needed, over all games
+         *
+         * @return the number of times "Add Three" was needed
+         */
+        public long getAddThrees() {
+            return addThrees;
+        }
+
+        /**
+         * Gets the number of games that needed "Add Three" at least once
+         *
+         * @return the number of games that needed "Add Three"
+         */
+        public long getGamesWithAddThree() {
+            return gamesWithAddThree;
+        }
+
+        /**
+         * Gets the number of games that ended with the given number of cards left
+         *
+         * @param cards a number of cards left at the end of a game.
+         * @return the number of games that ended with that many cards left.
+         */
+        public long getGamesWithCardsLeft(int cards) {
+            return cardsLeft[cards];
+        }
+
+        /**
+         * Gets the number of boards seen with the given number of SETs
+         *
+         * @param sets a number of SETs on a board.
+         * @return the number of boards seen with that many SETs (MAX_SETS counts every board with at least as many).
+         */
+        public long getBoardsWithSets(int sets) {
+            return setsPerBoard[sets];
+        }
+
+
+        /**
+         * This method returns a String representation of the statistics.
+         *
+         * @return a report of the statistics.
+         */
+        @Override
+        public String toString() {
+
+            StringBuilder report = new StringBuilder();
+            long boards = 0;
+            double totalCardsLeft = 0;
+            double totalSets = 0;
+
+            for (int cards = 0; cards < cardsLeft.length; cards++) {
+                totalCardsLeft += (double) cards * cardsLeft[cards];
+            }
+            for (int sets = 0; sets < setsPerBoard.length; sets++) {
+                boards += setsPerBoard[sets];
+                totalSets += (double) sets * setsPerBoard[sets];
+            }
+
+            report.append("Games: ").append(games).append("\n");
+            report.append(String.format("Cards left: mean %.3f%n", totalCardsLeft / games));
+            for (int cards = 0; cards < cardsLeft.length; cards++) {
+                if (cardsLeft[cards] > 0) {
+                    report.append(String.format("  %2d cards: %.4f%%%n", cards, 100.0 * cardsLeft[cards] / games));
+                }
+            }
+            report.append(String.format("Add Three: %.3f per game, needed in %.2f%% of games%n",
+                    (double) addThrees / games, 100.0 * gamesWithAddThree / games));
+            report.append(String.format("SETs per board: mean %.3f%n", totalSets / boards));
+            for (int sets = 0; sets < setsPerBoard.length; sets++) {
+                if (setsPerBoard[sets] > 0) {
+                    report.append(String.format("  %2d%s SETs: %.4f%%%n", sets, sets == MAX_SETS ? "+" : "",
+                            100.0 * setsPerBoard[sets] / boards));
+                }
+            }
+
+            return report.toString();
+        }
+    }
+
+
+    /*
+     * Fork/join task that plays a range of games. Large ranges are split in two, handing the first half a split of
+     * the random stream before forking so the decks dealt do not depend on scheduling.
+     */
+    private static class SimulationTask extends RecursiveTask<Stats> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SplittableRandom random;
+        private final int games;
+
+        SimulationTask(SplittableRandom random, int games) {
+            this.random = random;
+            this.games = games;
+        }
+
+        @Override
+        protected Stats compute() {
+
+            if (games <= GAMES_PER_TASK) {
+
+                Stats stats = new Stats();
+                for (int game = 0; game < games; game++) {
+                    long addThreesBefore = stats.addThrees;
+                    playGame(new Board(new Deck(random)), stats);
+                    if (stats.addThrees > addThreesBefore) {
+                        stats.gamesWithAddThree++;
+                    }
+                }
+                return stats;
+            }
+
+            SimulationTask firstHalf = new SimulationTask(random.split(), games / 2);
+            SimulationTask secondHalf = new SimulationTask(random, games - games / 2);
+
+            firstHalf.fork();
+            Stats stats = secondHalf.compute();
+            stats.merge(firstHalf.join());
+            return stats;
+        }
+    }
+
+
+    public static void main(String[] args) {
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+
+        long start = System.nanoTime();
+        Stats stats = simulate(games, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Seed: " + seed);
+        System.out.print(stats);
+        System.out.printf("%.0f games/s on %d threads%n", games / seconds, ForkJoinPool.commonPool().getParallelism());
+    }
+}
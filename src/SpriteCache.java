@@ -0,0 +1,202 @@
+/**
+ * SpriteCache.java
+ *
+ * Process-wide cache of the card sprites. There are only 27 distinct images (one per color, shape and shading), so each
+ * one is decoded once and shared by every Card panel. The sprite of a card is at index card / 3, since the count is the
+ * lowest digit of a card id.
+ *
+ * When the packed atlas resource images/sprites.atlas is present, preload() reads all 27 PNGs with one read and decodes
+ * them in parallel. Without it, sprites are read one file at a time from images/<color>_<shape>_<shading>.png. A sprite
+ * that is missing or cannot be decoded is an UncheckedIOException, from get() and preload() alike, and it is never
+ * cached, so no Card is ever painted from a null sprite.
+ *
+ * Atlas layout: the int ATLAS_MAGIC, the number of sprites, then for each sprite (in sprite index order) its length in
+ * bytes followed by its PNG data.
+ *
+ * @author Nico Suarez-Canton, Samson Drews, Alex Brown
+ */
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+
+public final class SpriteCache {
+
+    static final int SPRITES = Cards.DECK_SIZE / 3;     // One sprite per color, shape and shading.
+    static final int ATLAS_MAGIC = 0x53455431;          // "SET1"
+    static final String ATLAS_PATH = "images/sprites.atlas";
+
+    // Decoded sprites. The AtomicReferenceArray publishes each image safely, so a thread that reads it without the
+    // lock sees it fully decoded; the lock only keeps two threads from decoding the same sprite.
+    private static final AtomicReferenceArray<BufferedImage> sprites = new AtomicReferenceArray<>(SPRITES);
+    private static final Object decodeLock = new Object();
+
+
+    private SpriteCache() {
+    }
+
+
+    /**
+     * This method returns the shared sprite for a card, decoding it the first time it is needed.
+     *
+     * @param card the id of the card
+     * @return the sprite of the card.
+     * @throws UncheckedIOException if the sprite cannot be read.
+     */
+    public static BufferedImage get(int card) {
+
+        int sprite = card / 3;
+        BufferedImage image = sprites.get(sprite);
+
+        if (image == null) {
+            synchronized (decodeLock) {
+                image = sprites.get(sprite);
+                if (image == null) {
+                    image = readSprite(sprite);
+                    sprites.set(sprite, image);
+                }
+            }
+        }
+
+        return image;
+    }
+
+
+    /**
+     * This method decodes all the sprites up front, from the packed atlas if there is one. It is safe to call more
+     * than once.
+     *
+     * @throws UncheckedIOException if a sprite cannot be read.
+     */
+    public static void preload() {
+
+        byte[][] pngs = readAtlas();
+
+        synchronized (decodeLock) {
+            IntStream.range(0, SPRITES).parallel().forEach(sprite -> {
+                if (sprites.get(sprite) == null) {
+                    sprites.set(sprite, pngs != null ? decode(sprite, pngs[sprite]) : readSprite(sprite));
+                }
+            });
+        }
+    }
+
+
+    /*
+     * Private helper method that reads the PNGs held in the atlas, or returns null if there is no atlas.
+     */
+    private static byte[][] readAtlas() {
+
+        InputStream stream = SpriteCache.class.getResourceAsStream(ATLAS_PATH);
+        if (stream == null) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(stream)) {
+
+            if (in.readInt() != ATLAS_MAGIC || in.readInt() != SPRITES) {
+                return null;
+            }
+
+            byte[][] pngs = new byte[SPRITES][];
+            for (int sprite = 0; sprite < SPRITES; sprite++) {
+                pngs[sprite] = new byte[in.readInt()];
+                in.readFully(pngs[sprite]);
+            }
+
+            return pngs;
+
+        } catch (final IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+
+    /*
+     * Private helper method that reads one sprite from its own PNG file.
+     */
+    private static BufferedImage readSprite(int sprite) {
+
+        URL url = SpriteCache.class.getResource(spritePath(sprite));
+        if (url == null) {
+            throw new UncheckedIOException(new IOException("Missing sprite " + spritePath(sprite)));
+        }
+
+        try {
+            return checkDecoded(sprite, ImageIO.read(url));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /*
+     * Private helper method that decodes one PNG from the atlas.
+     */
+    private static BufferedImage decode(int sprite, byte[] png) {
+
+        try {
+            return checkDecoded(sprite, ImageIO.read(new ByteArrayInputStream(png)));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /*
+     * Private helper method that rejects the null ImageIO.read() returns for data that is not an image.
+     */
+    private static BufferedImage checkDecoded(int sprite, BufferedImage image) throws IOException {
+        if (image == null) {
+            throw new IOException("Cannot decode sprite " + spritePath(sprite));
+        }
+        return image;
+    }
+
+
+    /*
+     * Private helper method that returns the resource path of a sprite.
+     */
+    private static String spritePath(int sprite) {
+        int card = sprite * 3;
+        return "images/" + Cards.COLORS[Cards.color(card)] + "_" + Cards.SHAPES[Cards.shape(card)] + "_"
+                + Cards.SHADINGS[Cards.shading(card)] + ".png";
+    }
+
+
+    /**
+     * Packs the sprites of a resource folder into an atlas file.
+     * Usage: java SpriteCache res res/images/sprites.atlas
+     *
+     * @param args the resource folder holding images/, and the atlas file to write.
+     */
+    public static void main(String[] args) throws IOException {
+
+        File resources = new File(args[0]);
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(args[1]))) {
+
+            out.writeInt(ATLAS_MAGIC);
+            out.writeInt(SPRITES);
+
+            for (int sprite = 0; sprite < SPRITES; sprite++) {
+                byte[] png = Files.readAllBytes(new File(resources, spritePath(sprite)).toPath());
+                out.writeInt(png.length);
+                out.write(png);
+            }
+        }
+    }
+}